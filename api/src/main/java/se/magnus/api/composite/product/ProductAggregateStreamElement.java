@@ -0,0 +1,62 @@
+package se.magnus.api.composite.product;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One element of a streamed composite product. The product element, holding the base product
+ * information, is always sent first, followed by one element per recommendation and review.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductAggregateStreamElement {
+
+  public enum Type { PRODUCT, RECOMMENDATION, REVIEW }
+
+  private final Type type;
+  private final ProductAggregate product;
+  private final RecommendationSummary recommendation;
+  private final ReviewSummary review;
+
+  public ProductAggregateStreamElement() {
+    type = null;
+    product = null;
+    recommendation = null;
+    review = null;
+  }
+
+  public ProductAggregateStreamElement(ProductAggregate product) {
+    this.type = Type.PRODUCT;
+    this.product = product;
+    this.recommendation = null;
+    this.review = null;
+  }
+
+  public ProductAggregateStreamElement(RecommendationSummary recommendation) {
+    this.type = Type.RECOMMENDATION;
+    this.product = null;
+    this.recommendation = recommendation;
+    this.review = null;
+  }
+
+  public ProductAggregateStreamElement(ReviewSummary review) {
+    this.type = Type.REVIEW;
+    this.product = null;
+    this.recommendation = null;
+    this.review = review;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public ProductAggregate getProduct() {
+    return product;
+  }
+
+  public RecommendationSummary getRecommendation() {
+    return recommendation;
+  }
+
+  public ReviewSummary getReview() {
+    return review;
+  }
+}
@@ -4,8 +4,11 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
+import java.util.List;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Tag(name = "ProductComposite", description = "REST API for composite product information.")
@@ -45,6 +48,55 @@ public interface ProductCompositeService {
     @GetMapping(value = "/product-composite/{productId}", produces = "application/json")
     Mono<ProductAggregate> getProduct(@PathVariable int productId);
 
+    /**
+     * Sample usage: "curl $HOST:$PORT/product-composite/1/spliced".
+     *
+     * @param productId Id of the product
+     * @return the same JSON document as getProduct(), assembled directly from the JSON of the
+     *         core services
+     */
+    @Operation(summary = "${api.product-composite.get-composite-product-spliced.description}", description = "${api.product-composite.get-composite-product-spliced.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
+            @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+    })
+    @GetMapping(value = "/product-composite/{productId}/spliced", produces = "application/json")
+    Mono<DataBuffer> getProductSpliced(@PathVariable int productId);
+
+    /**
+     * Sample usage: "curl -H "Accept: application/x-ndjson" $HOST:$PORT/product-composite/1".
+     *
+     * @param productId Id of the product
+     * @return the composite product info as a stream, the base product info first followed by
+     *         the recommendations and reviews as they arrive
+     */
+    @Operation(summary = "${api.product-composite.get-composite-product-stream.description}", description = "${api.product-composite.get-composite-product-stream.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
+            @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+    })
+    @GetMapping(value = "/product-composite/{productId}", produces = { "application/x-ndjson", "text/event-stream" })
+    Flux<ProductAggregateStreamElement> getProductStream(@PathVariable int productId);
+
+    /**
+     * Sample usage: "curl $HOST:$PORT/product-composite?ids=1,2,3".
+     *
+     * @param ids Ids of the products
+     * @return the composite product info of the products found
+     */
+    @Operation(summary = "${api.product-composite.get-composite-products.description}", description = "${api.product-composite.get-composite-products.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+            @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+            @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+    })
+    @GetMapping(value = "/product-composite", produces = "application/json")
+    Flux<ProductAggregate> getProducts(@RequestParam(value = "ids", required = true) List<Integer> ids);
+
     /**
      * Sample usage: "curl -X DELETE $HOST:$PORT/product-composite/1".
      *
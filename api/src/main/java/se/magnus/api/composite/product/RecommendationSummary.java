@@ -1,5 +1,7 @@
 package se.magnus.api.composite.product;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class RecommendationSummary {
 
   private final int recommendationId;
@@ -7,18 +9,31 @@ public class RecommendationSummary {
   private final int rate;
   private final String content;
 
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private final boolean stale;
+
   public RecommendationSummary() {
     this.recommendationId = 0;
     this.author = null;
     this.rate = 0;
     this.content = null;
+    this.stale = false;
   }
 
   public RecommendationSummary(int recommendationId, String author, int rate, String content) {
+    this(recommendationId, author, rate, content, false);
+  }
+
+  /**
+   * @param stale true if served from the fallback store of the composite service, i.e. the
+   *              current data could not be fetched
+   */
+  public RecommendationSummary(int recommendationId, String author, int rate, String content, boolean stale) {
     this.recommendationId = recommendationId;
     this.author = author;
     this.rate = rate;
     this.content = content;
+    this.stale = stale;
   }
 
   public int getRecommendationId() {
@@ -36,4 +51,8 @@ public class RecommendationSummary {
   public String getContent() {
     return content;
   }
+
+  public boolean isStale() {
+    return stale;
+  }
 }
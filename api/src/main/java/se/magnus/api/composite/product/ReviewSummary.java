@@ -1,5 +1,7 @@
 package se.magnus.api.composite.product;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class ReviewSummary {
 
   private final int reviewId;
@@ -7,18 +9,31 @@ public class ReviewSummary {
   private final String subject;
   private final String content;
 
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private final boolean stale;
+
   public ReviewSummary() {
     this.reviewId = 0;
     this.author = null;
     this.subject = null;
     this.content = null;
+    this.stale = false;
   }
 
   public ReviewSummary(int reviewId, String author, String subject, String content) {
+    this(reviewId, author, subject, content, false);
+  }
+
+  /**
+   * @param stale true if served from the fallback store of the composite service, i.e. the
+   *              current data could not be fetched
+   */
+  public ReviewSummary(int reviewId, String author, String subject, String content, boolean stale) {
     this.reviewId = reviewId;
     this.author = author;
     this.subject = subject;
     this.content = content;
+    this.stale = stale;
   }
 
   public int getReviewId() {
@@ -36,4 +51,8 @@ public class ReviewSummary {
   public String getContent() {
     return content;
   }
-}
\ No newline at end of file
+
+  public boolean isStale() {
+    return stale;
+  }
+}
@@ -1,7 +1,9 @@
 package se.magnus.api.core.product;
 
+import java.util.List;
 import org.springframework.web.bind.annotation.*;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface ProductService {
@@ -25,9 +27,18 @@ public interface ProductService {
    * @param productId Id of the product
    * @return the product, if found, else null
    */
-  @GetMapping(value = "/product/{productId}", produces = "application/json")
+  @GetMapping(value = "/product/{productId}", produces = { "application/json", "application/x-jackson-smile", "application/cbor" })
   Mono<Product> getProduct(@PathVariable int productId);
 
+  /**
+   * Sample usage: "curl $HOST:$PORT/product?productIds=1,2,3".
+   *
+   * @param productIds Ids of the products
+   * @return the products found, products that don't exist are left out
+   */
+  @GetMapping(value = "/product", produces = { "application/json", "application/x-jackson-smile", "application/cbor" })
+  Flux<Product> getProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/product/1".
    *
@@ -22,15 +22,40 @@ public interface RecommendationService {
   @PostMapping(value = "/recommendation", consumes = "application/json", produces = "application/json")
   Mono<Recommendation> createRecommendation(@RequestBody Recommendation body);
 
+  /**
+   * Sample usage, see below.
+   *
+   * curl -X POST $HOST:$PORT/recommendation/batch \
+   * -H "Content-Type: application/json" --data \
+   * '[{"productId":123,"recommendationId":456,"author":"me","rate":5,"content":"yada"},
+   * {"productId":123,"recommendationId":457,"author":"me","rate":4,"content":"yada"}]'
+   *
+   * @param body A JSON array of the new recommendations
+   * @return A JSON representation of the newly created recommendations
+   */
+  @PostMapping(value = "/recommendation/batch", consumes = "application/json", produces = "application/json")
+  Flux<Recommendation> createRecommendations(@RequestBody List<Recommendation> body);
+
   /**
    * Sample usage: "curl $HOST:$PORT/recommendation?productId=1".
    *
    * @param productId Id of the product
    * @return the recommendations of the product
    */
-  @GetMapping(value = "/recommendation", produces = "application/json")
+  @GetMapping(value = "/recommendation", produces = { "application/json", "application/x-jackson-smile", "application/cbor" })
   Flux<Recommendation> getRecommendations(
       @RequestParam(value = "productId", required = true) int productId);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/recommendation?productIds=1,2,3".
+   *
+   * @param productIds Ids of the products
+   * @return the recommendations of all the products
+   */
+  @GetMapping(value = "/recommendation", params = "productIds", produces = { "application/json", "application/x-jackson-smile", "application/cbor" })
+  Flux<Recommendation> getRecommendations(
+      @RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/recommendation/1".
    *
@@ -1,5 +1,7 @@
 package se.magnus.api.core.review;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class Review {
   private int productId;
   private int reviewId;
@@ -8,6 +10,10 @@ public class Review {
   private String content;
   private String serviceAddress;
 
+  // Only set by the composite service, on data served from its fallback store
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private boolean stale;
+
   public Review() {
     productId = 0;
     reviewId = 0;
@@ -57,6 +63,10 @@ public class Review {
     return serviceAddress;
   }
 
+  public boolean isStale() {
+    return stale;
+  }
+
   public void setProductId(int productId) {
     this.productId = productId;
   }
@@ -80,4 +90,8 @@ public class Review {
   public void setServiceAddress(String serviceAddress) {
     this.serviceAddress = serviceAddress;
   }
+
+  public void setStale(boolean stale) {
+    this.stale = stale;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package se.magnus.api.core.review;
+
+import java.util.List;
+
+public class ReviewPage {
+  private List<Review> reviews;
+
+  // Passed as the after parameter to get the next page, null on the last page
+  private String nextCursor;
+
+  public ReviewPage() {
+    reviews = null;
+    nextCursor = null;
+  }
+
+  public ReviewPage(List<Review> reviews, String nextCursor) {
+    this.reviews = reviews;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<Review> getReviews() {
+    return reviews;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setReviews(List<Review> reviews) {
+    this.reviews = reviews;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+}
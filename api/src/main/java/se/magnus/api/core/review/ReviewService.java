@@ -22,15 +22,53 @@ public interface ReviewService {
   @PostMapping(value = "/review", consumes = "application/json", produces = "application/json")
   Mono<Review> createReview(@RequestBody Review body);
 
+  /**
+   * Sample usage, see below.
+   *
+   * curl -X POST $HOST:$PORT/review/batch \
+   * -H "Content-Type: application/json" --data \
+   * '[{"productId":123,"reviewId":456,"author":"me","subject":"yada","content":"yada"},
+   * {"productId":123,"reviewId":457,"author":"me","subject":"yada","content":"yada"}]'
+   *
+   * @param body A JSON array of the new reviews
+   * @return A JSON representation of the newly created reviews
+   */
+  @PostMapping(value = "/review/batch", consumes = "application/json", produces = "application/json")
+  Flux<Review> createReviews(@RequestBody List<Review> body);
+
   /**
    * Sample usage: "curl $HOST:$PORT/review?productId=1".
    *
    * @param productId Id of the product
    * @return the reviews of the product
    */
-  @GetMapping(value = "/review", produces = "application/json")
+  @GetMapping(value = "/review", produces = { "application/json", "application/x-jackson-smile", "application/cbor" })
   Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
 
+  /**
+   * Sample usage: "curl $HOST:$PORT/review?productId=1&limit=100", followed by
+   * "curl $HOST:$PORT/review?productId=1&limit=100&after=$NEXT_CURSOR" for the next page.
+   *
+   * @param productId Id of the product
+   * @param limit Max number of reviews in the page
+   * @param after The nextCursor of the previous page, or none for the first page
+   * @return a page of the reviews of the product, ordered by reviewId
+   */
+  @GetMapping(value = "/review", params = "limit", produces = { "application/json", "application/x-jackson-smile", "application/cbor" })
+  Mono<ReviewPage> getReviewPage(
+      @RequestParam(value = "productId", required = true) int productId,
+      @RequestParam(value = "limit", required = true) int limit,
+      @RequestParam(value = "after", required = false) String after);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/review?productIds=1,2,3".
+   *
+   * @param productIds Ids of the products
+   * @return the reviews of all the products
+   */
+  @GetMapping(value = "/review", params = "productIds", produces = { "application/json", "application/x-jackson-smile", "application/cbor" })
+  Flux<Review> getReviews(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/review?productId=1".
    *
@@ -0,0 +1,114 @@
+package se.magnus.api.grpc;
+
+import se.magnus.api.core.product.Product;
+import se.magnus.api.core.recommendation.Recommendation;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewPage;
+
+/**
+ * Converts between the API classes and the protobuf messages of the gRPC API.
+ *
+ * Protobuf has no null strings, a null field is sent as an empty string and an empty string is
+ * received as null.
+ */
+public final class ProtoMapper {
+
+  private ProtoMapper() {
+  }
+
+  public static ProductMessage toMessage(Product api) {
+    return ProductMessage.newBuilder()
+      .setProductId(api.getProductId())
+      .setName(nullToEmpty(api.getName()))
+      .setWeight(api.getWeight())
+      .setServiceAddress(nullToEmpty(api.getServiceAddress()))
+      .build();
+  }
+
+  public static Product toApi(ProductMessage message) {
+    return new Product(
+      message.getProductId(),
+      emptyToNull(message.getName()),
+      message.getWeight(),
+      emptyToNull(message.getServiceAddress()));
+  }
+
+  public static RecommendationMessage toMessage(Recommendation api) {
+    return RecommendationMessage.newBuilder()
+      .setProductId(api.getProductId())
+      .setRecommendationId(api.getRecommendationId())
+      .setAuthor(nullToEmpty(api.getAuthor()))
+      .setRate(api.getRate())
+      .setContent(nullToEmpty(api.getContent()))
+      .setServiceAddress(nullToEmpty(api.getServiceAddress()))
+      .build();
+  }
+
+  public static Recommendation toApi(RecommendationMessage message) {
+    return new Recommendation(
+      message.getProductId(),
+      message.getRecommendationId(),
+      emptyToNull(message.getAuthor()),
+      message.getRate(),
+      emptyToNull(message.getContent()),
+      emptyToNull(message.getServiceAddress()));
+  }
+
+  public static ReviewMessage toMessage(Review api) {
+    return ReviewMessage.newBuilder()
+      .setProductId(api.getProductId())
+      .setReviewId(api.getReviewId())
+      .setAuthor(nullToEmpty(api.getAuthor()))
+      .setSubject(nullToEmpty(api.getSubject()))
+      .setContent(nullToEmpty(api.getContent()))
+      .setServiceAddress(nullToEmpty(api.getServiceAddress()))
+      .build();
+  }
+
+  public static Review toApi(ReviewMessage message) {
+    return new Review(
+      message.getProductId(),
+      message.getReviewId(),
+      emptyToNull(message.getAuthor()),
+      emptyToNull(message.getSubject()),
+      emptyToNull(message.getContent()),
+      emptyToNull(message.getServiceAddress()));
+  }
+
+  public static ReviewPageMessage toMessage(ReviewPage api) {
+    ReviewPageMessage.Builder builder = ReviewPageMessage.newBuilder()
+      .setNextCursor(nullToEmpty(api.getNextCursor()));
+    api.getReviews().forEach(r -> builder.addReviews(toMessage(r)));
+    return builder.build();
+  }
+
+  public static ReviewPage toApi(ReviewPageMessage message) {
+    return new ReviewPage(
+      message.getReviewsList().stream().map(r -> toApi(r)).toList(),
+      emptyToNull(message.getNextCursor()));
+  }
+
+  public static ReviewPageRequest reviewPage(int productId, int limit, String after) {
+    return ReviewPageRequest.newBuilder()
+      .setProductId(productId)
+      .setLimit(limit)
+      .setAfter(nullToEmpty(after))
+      .build();
+  }
+
+  public static ProductIdRequest productId(int productId) {
+    return ProductIdRequest.newBuilder().setProductId(productId).build();
+  }
+
+  public static ProductIdsRequest productIds(Iterable<Integer> productIds) {
+    return ProductIdsRequest.newBuilder().addAllProductIds(productIds).build();
+  }
+
+  private static String nullToEmpty(String value) {
+    return value == null ? "" : value;
+  }
+
+  private static String emptyToNull(String value) {
+    return value.isEmpty() ? null : value;
+  }
+}
@@ -0,0 +1,218 @@
+package se.magnus.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import se.magnus.api.exceptions.ServiceUnavailableException;
+
+/*
+ * Limits the number of concurrent calls to a downstream service, using AIMD on observed latency.
+ *
+ * A long-term, slowly moving average of the latency is kept as the baseline. A call that fails
+ * or takes more than tolerance times the baseline shrinks the limit by backoffRatio, any other
+ * call grows it by 1/limit while the current limit is actually being used, i.e. by about one per
+ * round trip of a full limit of calls. As in TCP congestion control, the limit is only shrunk once
+ * per round trip, by calls started after the last time it was shrunk, so a burst of failures from
+ * calls already in flight doesn't collapse it. Calls above the limit
+ * wait in a short queue for at most maxWait and are rejected with a ServiceUnavailableException
+ * when the queue is full or the wait times out.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final double BASELINE_SMOOTHING = 0.01;
+
+    private final String serviceName;
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final LongSupplier clock;
+
+    private final Deque<Sinks.One<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight = 0;
+    private double baselineNanos = 0;
+    private long lastBackoffNanos = Long.MIN_VALUE;
+
+    private final Counter rejectedCounter;
+
+    public AdaptiveConcurrencyLimiter(String serviceName, boolean enabled, int initialLimit, int minLimit,
+            int maxLimit, double backoffRatio, double tolerance, int maxQueue, Duration maxWait,
+            MeterRegistry registry) {
+        this(serviceName, enabled, initialLimit, minLimit, maxLimit, backoffRatio, tolerance, maxQueue, maxWait,
+                registry, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String serviceName, boolean enabled, int initialLimit, int minLimit,
+            int maxLimit, double backoffRatio, double tolerance, int maxQueue, Duration maxWait,
+            MeterRegistry registry, LongSupplier clock) {
+        this.serviceName = serviceName;
+        this.enabled = enabled;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.clock = clock;
+
+        Tags tags = Tags.of("service", serviceName);
+        this.rejectedCounter = Counter.builder("composite.limiter.rejected").tags(tags).register(registry);
+        registry.gauge("composite.limiter.limit", tags, this, AdaptiveConcurrencyLimiter::getLimit);
+        registry.gauge("composite.limiter.in-flight", tags, this, AdaptiveConcurrencyLimiter::getInFlight);
+        registry.gauge("composite.limiter.queued", tags, this, AdaptiveConcurrencyLimiter::getQueued);
+    }
+
+    /**
+     * Reads the settings of a downstream service from app.&lt;service-name&gt;.limiter.
+     */
+    public static AdaptiveConcurrencyLimiter create(String serviceName, Environment env, MeterRegistry registry) {
+        String prefix = "app." + serviceName + ".limiter.";
+        boolean enabled = env.getProperty(prefix + "enabled", Boolean.class, true);
+        int initialLimit = env.getProperty(prefix + "initial-limit", Integer.class, 20);
+        int minLimit = env.getProperty(prefix + "min-limit", Integer.class, 1);
+        int maxLimit = env.getProperty(prefix + "max-limit", Integer.class, 200);
+        double backoffRatio = env.getProperty(prefix + "backoff-ratio", Double.class, 0.9);
+        double tolerance = env.getProperty(prefix + "tolerance", Double.class, 2.0);
+        int maxQueue = env.getProperty(prefix + "max-queue", Integer.class, 50);
+        Duration maxWait = env.getProperty(prefix + "max-wait", Duration.class, Duration.ofMillis(50));
+
+        LOG.info("Concurrency limiter for {} enabled: {}, initialLimit: {}, minLimit: {}, maxLimit: {}, maxQueue: {}",
+                serviceName, enabled, initialLimit, minLimit, maxLimit, maxQueue);
+        return new AdaptiveConcurrencyLimiter(serviceName, enabled, initialLimit, minLimit, maxLimit, backoffRatio,
+                tolerance, maxQueue, maxWait, registry);
+    }
+
+    /**
+     * Emits a permit once the call may start. The permit must be released when the call is done.
+     */
+    public Mono<Permit> acquire() {
+        if (!enabled) {
+            return Mono.fromSupplier(Permit::new);
+        }
+
+        return Mono.defer(() -> {
+            Sinks.One<Permit> waiter;
+            synchronized (this) {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return Mono.just(new Permit());
+                }
+                if (waiters.size() >= maxQueue) {
+                    return reject("queue full");
+                }
+                waiter = Sinks.one();
+                waiters.addLast(waiter);
+            }
+
+            return waiter.asMono()
+                    .timeout(maxWait)
+                    .onErrorResume(TimeoutException.class,
+                            e -> removeWaiter(waiter) ? reject("timed out in queue") : waiter.asMono())
+                    .doOnCancel(() -> {
+                        if (!removeWaiter(waiter)) {
+                            // The permit has already been handed over to us, give it back
+                            waiter.asMono().subscribe(Permit::ignore);
+                        }
+                    });
+        });
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    private synchronized boolean removeWaiter(Sinks.One<Permit> waiter) {
+        return waiters.remove(waiter);
+    }
+
+    private <T> Mono<T> reject(String reason) {
+        rejectedCounter.increment();
+        LOG.debug("Rejects call to {}, {}", serviceName, reason);
+        return Mono.error(new ServiceUnavailableException(
+                "Too many concurrent requests to " + serviceName + ", " + reason));
+    }
+
+    private void onRelease(long startNanos, long endNanos, boolean dropped, boolean sample) {
+        Sinks.One<Permit> next;
+        synchronized (this) {
+            if (sample) {
+                updateLimit(startNanos, endNanos, dropped);
+            }
+            next = (inFlight <= (int) limit) ? waiters.pollFirst() : null;
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        if (next != null) {
+            // The in-flight slot is handed over to the first waiter
+            next.tryEmitValue(new Permit());
+        }
+    }
+
+    private void updateLimit(long startNanos, long endNanos, boolean dropped) {
+        long latencyNanos = endNanos - startNanos;
+        baselineNanos = (baselineNanos == 0) ? latencyNanos
+                : baselineNanos + BASELINE_SMOOTHING * (latencyNanos - baselineNanos);
+
+        if (dropped || latencyNanos > baselineNanos * tolerance) {
+            if (startNanos >= lastBackoffNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastBackoffNanos = endNanos;
+            }
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public final class Permit {
+
+        private final long start = clock.getAsLong();
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        /**
+         * Releases the permit and feeds the latency of the call to the limit algorithm.
+         *
+         * @param dropped true if the call failed in a way that indicates overload
+         */
+        public void release(boolean dropped) {
+            if (released.compareAndSet(false, true) && enabled) {
+                onRelease(start, clock.getAsLong(), dropped, true);
+            }
+        }
+
+        /**
+         * Releases the permit without affecting the limit, e.g. for cancelled calls.
+         */
+        public void ignore() {
+            if (released.compareAndSet(false, true) && enabled) {
+                onRelease(0, 0, false, false);
+            }
+        }
+    }
+}
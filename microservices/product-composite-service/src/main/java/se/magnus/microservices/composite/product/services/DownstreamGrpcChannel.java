@@ -0,0 +1,57 @@
+package se.magnus.microservices.composite.product.services;
+
+import io.grpc.Channel;
+import io.grpc.stub.AbstractStub;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.exceptions.DeadlineExceededException;
+import se.magnus.api.exceptions.InvalidInputException;
+import se.magnus.api.exceptions.NotFoundException;
+import se.magnus.microservices.composite.product.services.AdaptiveConcurrencyLimiter.Permit;
+import se.magnus.util.grpc.ReactiveGrpc;
+
+/*
+ * The gRPC counterpart of the WebClient of a downstream service, created by
+ * DownstreamGrpcChannelFactory.
+ *
+ * Calls are made with ReactiveGrpc through the same AdaptiveConcurrencyLimiter as the REST calls
+ * to the service. A permit is held until the response, or the last message of a stream, has been
+ * received. Failures count as signs of overload, like 5xx responses and I/O errors do, except
+ * NOT_FOUND and INVALID_ARGUMENT, and calls that are cancelled or run out of time are ignored.
+ */
+class DownstreamGrpcChannel {
+
+    private final Channel channel;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    DownstreamGrpcChannel(Channel channel, AdaptiveConcurrencyLimiter limiter) {
+        this.channel = channel;
+        this.limiter = limiter;
+    }
+
+    Channel getChannel() {
+        return channel;
+    }
+
+    <S extends AbstractStub<S>, Q, T> Mono<T> unary(S stub, ReactiveGrpc.Call<S, Q, T> call, Q request) {
+        return limiter.acquire().flatMap(permit -> ReactiveGrpc.unary(stub, call, request)
+                .doOnSuccess(response -> permit.release(false))
+                .doOnError(ex -> release(permit, ex))
+                .doOnCancel(permit::ignore));
+    }
+
+    <S extends AbstractStub<S>, Q, T> Flux<T> serverStreaming(S stub, ReactiveGrpc.Call<S, Q, T> call, Q request) {
+        return limiter.acquire().flatMapMany(permit -> ReactiveGrpc.serverStreaming(stub, call, request)
+                .doOnComplete(() -> permit.release(false))
+                .doOnError(ex -> release(permit, ex))
+                .doOnCancel(permit::ignore));
+    }
+
+    private void release(Permit permit, Throwable ex) {
+        if (ex instanceof DeadlineExceededException) {
+            permit.ignore();
+        } else {
+            permit.release(!(ex instanceof NotFoundException || ex instanceof InvalidInputException));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package se.magnus.microservices.composite.product.services;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.netty.NettyChannelBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/*
+ * Creates the gRPC channels to the downstream services that are called over gRPC instead of REST,
+ * selected with app.<service-name>.transport, one of rest (the default) or grpc.
+ *
+ * There is one channel per instance of the service, each one HTTP/2 connection with all
+ * concurrent calls multiplexed over it as separate streams, so there is no connection pool to
+ * configure. The instances are listed as host:port in app.<service-name>.grpc.instances. Without
+ * that list, the hosts of app.<service-name>.instances are used on app.<service-name>.grpc.port,
+ * or only app.<service-name>.host on that port.
+ *
+ * As for the WebClients, each call goes to an instance picked by a DownstreamLoadBalancer, with
+ * the settings of app.<service-name>.load-balancer and its meters tagged with the service name
+ * followed by -grpc. UNAVAILABLE, INTERNAL, UNKNOWN and DATA_LOSS count as failures of the
+ * instance. The calls also go through the concurrency limiter of the service, see
+ * DownstreamGrpcChannel.
+ */
+@Component
+public class DownstreamGrpcChannelFactory implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamGrpcChannelFactory.class);
+
+    private final Environment env;
+    private final MeterRegistry registry;
+    private final DownstreamWebClientFactory webClientFactory;
+    private final List<ManagedChannel> channels = new CopyOnWriteArrayList<>();
+
+    public DownstreamGrpcChannelFactory(Environment env, MeterRegistry registry,
+            DownstreamWebClientFactory webClientFactory) {
+        this.env = env;
+        this.registry = registry;
+        this.webClientFactory = webClientFactory;
+    }
+
+    public boolean isEnabled(String serviceName) {
+        String transport = env.getProperty("app." + serviceName + ".transport", "rest");
+        switch (transport.toLowerCase()) {
+            case "rest":
+                return false;
+            case "grpc":
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown transport for " + serviceName + ": " + transport);
+        }
+    }
+
+    public DownstreamGrpcChannel create(String serviceName) {
+
+        List<String> addresses = addresses(serviceName);
+        LOG.info("Creates gRPC channels for {} to {}", serviceName, addresses);
+
+        DownstreamLoadBalancer loadBalancer = DownstreamLoadBalancer.create(serviceName, serviceName + "-grpc",
+                addresses, env, registry);
+        Map<DownstreamLoadBalancer.Instance, Channel> instanceChannels = new HashMap<>();
+        for (DownstreamLoadBalancer.Instance instance : loadBalancer.getInstances()) {
+            // Responses are only handed to Reactor sinks, so they are delivered on the Netty event loop
+            ManagedChannel channel = NettyChannelBuilder.forAddress(instance.getHost(), instance.getPort())
+                    .usePlaintext()
+                    .directExecutor()
+                    .build();
+            channels.add(channel);
+            instanceChannels.put(instance, channel);
+        }
+
+        return new DownstreamGrpcChannel(new LoadBalancedChannel(loadBalancer, instanceChannels),
+                webClientFactory.limiter(serviceName));
+    }
+
+    private List<String> addresses(String serviceName) {
+        String prefix = "app." + serviceName + ".";
+        int port = env.getProperty(prefix + "grpc.port", Integer.class, 9090);
+        Binder binder = Binder.get(env);
+
+        return binder.bind(prefix + "grpc.instances", Bindable.listOf(String.class))
+                .orElseGet(() -> binder.bind(prefix + "instances", Bindable.listOf(String.class))
+                        .map(instances -> instances.stream().map(address -> withPort(address, port)).toList())
+                        .orElseGet(() -> List.of(env.getRequiredProperty(prefix + "host") + ":" + port)));
+    }
+
+    private static String withPort(String address, int port) {
+        String host = address.trim();
+        int separator = host.lastIndexOf(':');
+        return (separator < 0 ? host : host.substring(0, separator)) + ":" + port;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        channels.forEach(ManagedChannel::shutdown);
+        for (ManagedChannel channel : channels) {
+            if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+                channel.shutdownNow();
+            }
+        }
+    }
+
+    /*
+     * Sends each call over the channel of the instance picked by the load balancer, and completes
+     * the pick when the call is closed.
+     */
+    static class LoadBalancedChannel extends Channel {
+
+        private final DownstreamLoadBalancer loadBalancer;
+        private final Map<DownstreamLoadBalancer.Instance, Channel> channels;
+
+        LoadBalancedChannel(DownstreamLoadBalancer loadBalancer,
+                Map<DownstreamLoadBalancer.Instance, Channel> channels) {
+            this.loadBalancer = loadBalancer;
+            this.channels = channels;
+        }
+
+        @Override
+        public <Q, T> ClientCall<Q, T> newCall(MethodDescriptor<Q, T> method, CallOptions options) {
+            DownstreamLoadBalancer.Call pick = loadBalancer.choose();
+            ClientCall<Q, T> call;
+            try {
+                call = channels.get(pick.getInstance()).newCall(method, options);
+            } catch (RuntimeException e) {
+                pick.ignore();
+                throw e;
+            }
+
+            return new ForwardingClientCall.SimpleForwardingClientCall<Q, T>(call) {
+                @Override
+                public void start(Listener<T> listener, Metadata headers) {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<T>(listener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            complete(pick, status);
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                }
+            };
+        }
+
+        @Override
+        public String authority() {
+            return channels.get(loadBalancer.getInstances().get(0)).authority();
+        }
+
+        private void complete(DownstreamLoadBalancer.Call pick, Status status) {
+            switch (status.getCode()) {
+                case CANCELLED:
+                case DEADLINE_EXCEEDED:
+                    pick.ignore();
+                    break;
+                case UNAVAILABLE:
+                case INTERNAL:
+                case UNKNOWN:
+                case DATA_LOSS:
+                    pick.complete(true);
+                    break;
+                default:
+                    pick.complete(false);
+            }
+        }
+    }
+}
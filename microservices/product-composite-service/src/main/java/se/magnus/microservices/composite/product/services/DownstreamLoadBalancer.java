@@ -0,0 +1,266 @@
+package se.magnus.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/*
+ * Spreads the calls to a downstream service over its instances, configured as a list of host:port
+ * in app.<service-name>.instances. Without that list, the single instance given by
+ * app.<service-name>.host and port is used.
+ *
+ * Each call goes to the instance with the fewest outstanding calls of two randomly picked ones
+ * (power of two choices), which avoids slow instances without the herding of always picking the
+ * least loaded one.
+ *
+ * Instances are ejected passively: after a number of consecutive failures, i.e. 5xx responses or
+ * I/O errors, an instance gets no calls for the ejection time, which grows with each ejection up
+ * to a maximum. At most max-ejection-percent of the instances are ejected at the same time, and
+ * if all instances are ejected anyway, all are used again, to never fail a call just because of
+ * the ejections.
+ */
+public class DownstreamLoadBalancer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamLoadBalancer.class);
+
+    private final String serviceName;
+    private final List<Instance> instances;
+    private final int consecutiveFailures;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private final int maxEjected;
+    private final LongSupplier clock;
+
+    public DownstreamLoadBalancer(String serviceName, List<String> addresses, int consecutiveFailures,
+            Duration baseEjectionTime, Duration maxEjectionTime, int maxEjectionPercent, MeterRegistry registry) {
+        this(serviceName, addresses, consecutiveFailures, baseEjectionTime, maxEjectionTime, maxEjectionPercent,
+                registry, System::nanoTime);
+    }
+
+    DownstreamLoadBalancer(String serviceName, List<String> addresses, int consecutiveFailures,
+            Duration baseEjectionTime, Duration maxEjectionTime, int maxEjectionPercent, MeterRegistry registry,
+            LongSupplier clock) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("No instances configured for " + serviceName);
+        }
+        this.serviceName = serviceName;
+        this.consecutiveFailures = consecutiveFailures;
+        this.baseEjectionNanos = baseEjectionTime.toNanos();
+        this.maxEjectionNanos = maxEjectionTime.toNanos();
+        this.maxEjected = Math.max(1, addresses.size() * maxEjectionPercent / 100);
+        this.clock = clock;
+
+        List<Instance> list = new ArrayList<>();
+        for (String address : addresses) {
+            list.add(new Instance(address.trim(), registry));
+        }
+        this.instances = Collections.unmodifiableList(list);
+
+        registry.gauge("composite.loadbalancer.healthy", Tags.of("service", serviceName), this,
+                b -> b.healthyCount(b.clock.getAsLong()));
+    }
+
+    /**
+     * Reads the instances of a downstream service from app.&lt;service-name&gt;.instances and the
+     * ejection settings from app.&lt;service-name&gt;.load-balancer.
+     */
+    public static DownstreamLoadBalancer create(String serviceName, Environment env, MeterRegistry registry) {
+        String prefix = "app." + serviceName + ".";
+        List<String> addresses = Binder.get(env).bind(prefix + "instances", Bindable.listOf(String.class))
+                .orElseGet(() -> List.of(env.getRequiredProperty(prefix + "host") + ":"
+                        + env.getRequiredProperty(prefix + "port")));
+        return create(serviceName, serviceName, addresses, env, registry);
+    }
+
+    /**
+     * Balances over the given instances, with the ejection settings of the service.
+     *
+     * @param name the name of the load balancer in its meters and logs, e.g. the service name
+     */
+    public static DownstreamLoadBalancer create(String serviceName, String name, List<String> addresses,
+            Environment env, MeterRegistry registry) {
+        String prefix = "app." + serviceName + ".";
+        int consecutiveFailures = env.getProperty(prefix + "load-balancer.consecutive-failures", Integer.class, 5);
+        Duration baseEjectionTime = env.getProperty(prefix + "load-balancer.base-ejection-time", Duration.class,
+                Duration.ofSeconds(30));
+        Duration maxEjectionTime = env.getProperty(prefix + "load-balancer.max-ejection-time", Duration.class,
+                Duration.ofMinutes(5));
+        int maxEjectionPercent = env.getProperty(prefix + "load-balancer.max-ejection-percent", Integer.class, 50);
+
+        LOG.info("Load balancer for {} instances: {}, consecutiveFailures: {}, baseEjectionTime: {}, "
+                + "maxEjectionPercent: {}", name, addresses, consecutiveFailures, baseEjectionTime,
+                maxEjectionPercent);
+        return new DownstreamLoadBalancer(name, addresses, consecutiveFailures, baseEjectionTime,
+                maxEjectionTime, maxEjectionPercent, registry);
+    }
+
+    /**
+     * Picks an instance for a call. The call must be completed when it is done.
+     */
+    public Call choose() {
+        long now = clock.getAsLong();
+        List<Instance> candidates = healthy(now);
+
+        Instance instance;
+        if (candidates.size() == 1) {
+            instance = candidates.get(0);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            Instance a = candidates.get(first);
+            Instance b = candidates.get(second);
+            instance = (b.outstanding.get() < a.outstanding.get()) ? b : a;
+        }
+
+        instance.outstanding.incrementAndGet();
+        return new Call(instance);
+    }
+
+    public List<Instance> getInstances() {
+        return instances;
+    }
+
+    private List<Instance> healthy(long now) {
+        List<Instance> healthy = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (!instance.isEjected(now)) {
+                healthy.add(instance);
+            }
+        }
+        return healthy.isEmpty() ? instances : healthy;
+    }
+
+    private int healthyCount(long now) {
+        int count = 0;
+        for (Instance instance : instances) {
+            if (!instance.isEjected(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private synchronized void onFailure(Instance instance) {
+        long now = clock.getAsLong();
+        if (instance.isEjected(now) || instance.consecutiveFailures.incrementAndGet() < consecutiveFailures) {
+            return;
+        }
+
+        int ejected = instances.size() - healthyCount(now);
+        if (ejected >= maxEjected || ejected + 1 >= instances.size()) {
+            // Keep the instance, ejecting it would leave too few instances
+            return;
+        }
+
+        instance.ejections++;
+        long ejectionNanos = Math.min(maxEjectionNanos, baseEjectionNanos * instance.ejections);
+        instance.ejectedUntil = now + ejectionNanos;
+        instance.consecutiveFailures.set(0);
+        instance.ejectionCounter.increment();
+        LOG.warn("Ejects {} instance {} for {} ms after {} consecutive failures", serviceName, instance.address,
+                ejectionNanos / 1_000_000, consecutiveFailures);
+    }
+
+    public final class Instance {
+
+        private final String address;
+        private final String host;
+        private final int port;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final Counter ejectionCounter;
+        private volatile long ejectedUntil;
+        private int ejections = 0;
+
+        Instance(String address, MeterRegistry registry) {
+            int separator = address.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected host:port for " + serviceName + ", got: " + address);
+            }
+            this.address = address;
+            this.host = address.substring(0, separator);
+            this.port = Integer.parseInt(address.substring(separator + 1));
+            this.ejectedUntil = clock.getAsLong();
+
+            Tags tags = Tags.of("service", serviceName, "instance", address);
+            this.ejectionCounter = Counter.builder("composite.loadbalancer.ejections").tags(tags).register(registry);
+            registry.gauge("composite.loadbalancer.outstanding", tags, outstanding);
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public boolean isEjected() {
+            return isEjected(clock.getAsLong());
+        }
+
+        private boolean isEjected(long now) {
+            return now - ejectedUntil < 0;
+        }
+    }
+
+    public final class Call {
+
+        private final Instance instance;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        Call(Instance instance) {
+            this.instance = instance;
+        }
+
+        public Instance getInstance() {
+            return instance;
+        }
+
+        /**
+         * Completes the call, a failed call counts towards ejecting the instance.
+         *
+         * @param failed true if the call got a 5xx response or an I/O error
+         */
+        public void complete(boolean failed) {
+            if (completed.compareAndSet(false, true)) {
+                instance.outstanding.decrementAndGet();
+                if (failed) {
+                    onFailure(instance);
+                } else {
+                    instance.consecutiveFailures.set(0);
+                }
+            }
+        }
+
+        /**
+         * Completes the call without affecting the health of the instance, e.g. for cancelled calls.
+         */
+        public void ignore() {
+            if (completed.compareAndSet(false, true)) {
+                instance.outstanding.decrementAndGet();
+            }
+        }
+    }
+}
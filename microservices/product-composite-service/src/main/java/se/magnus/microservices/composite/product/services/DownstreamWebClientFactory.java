@@ -0,0 +1,191 @@
+package se.magnus.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import se.magnus.util.http.BinaryCodecCustomizer;
+import se.magnus.util.http.RequestDeadline;
+
+/*
+ * Creates one WebClient per downstream service, each with its own reactor-netty connection pool,
+ * so that a slow service exhausting its pool can't starve the calls to the other services.
+ *
+ * The pool of a service is configured under app.<service-name>.pool and HTTP/2 over cleartext
+ * (h2c) is enabled with app.<service-name>.http2. Pool metrics are published as
+ * reactor.netty.connection.provider.* tagged with the name of the service.
+ *
+ * The time left until the deadline of the request, if any, is sent to the service in the
+ * X-Request-Deadline-Ms header. Calls are not sent at all once the deadline has passed.
+ *
+ * The number of concurrent calls to a service is bounded by an AdaptiveConcurrencyLimiter,
+ * configured under app.<service-name>.limiter. A permit is held until the response body has
+ * been consumed, and 5xx responses and I/O errors count as signs of overload. The gRPC calls to
+ * the service share the same limiter, see DownstreamGrpcChannel.
+ *
+ * Each call is sent to one of the instances of the service, picked by a DownstreamLoadBalancer
+ * configured under app.<service-name>.instances and app.<service-name>.load-balancer. The host and
+ * port of the request URL are replaced with the ones of the picked instance.
+ *
+ * Responses are requested in the format given by app.<service-name>.encoding, one of json, smile
+ * or cbor, unless a call asks for another one. The binary formats are more compact than JSON
+ * and cheaper to parse. With app.<service-name>.compression, responses are also requested gzip
+ * compressed, which the services only do for large responses, see server.compression.
+ */
+@Component
+public class DownstreamWebClientFactory implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamWebClientFactory.class);
+
+    private final WebClient.Builder builder;
+    private final Environment env;
+    private final MeterRegistry registry;
+    private final List<ConnectionProvider> providers = new CopyOnWriteArrayList<>();
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public DownstreamWebClientFactory(WebClient.Builder builder, Environment env, MeterRegistry registry) {
+        this.builder = builder;
+        this.env = env;
+        this.registry = registry;
+    }
+
+    public WebClient create(String serviceName) {
+
+        String prefix = "app." + serviceName + ".";
+        int maxConnections = env.getProperty(prefix + "pool.max-connections", Integer.class, 50);
+        int pendingAcquireMaxCount = env.getProperty(prefix + "pool.pending-acquire-max-count", Integer.class, 200);
+        Duration pendingAcquireTimeout = env.getProperty(prefix + "pool.pending-acquire-timeout", Duration.class,
+                Duration.ofSeconds(5));
+        Duration maxIdleTime = env.getProperty(prefix + "pool.max-idle-time", Duration.class, Duration.ofSeconds(30));
+        Duration evictInterval = env.getProperty(prefix + "pool.evict-interval", Duration.class,
+                Duration.ofSeconds(30));
+        boolean http2 = env.getProperty(prefix + "http2", Boolean.class, false);
+        MediaType encoding = encoding(serviceName, env.getProperty(prefix + "encoding", "json"));
+        boolean compression = env.getProperty(prefix + "compression", Boolean.class, false);
+
+        LOG.info("Creates a WebClient for {} with maxConnections: {}, pendingAcquireMaxCount: {}, http2: {}, "
+                + "encoding: {}, compression: {}", serviceName, maxConnections, pendingAcquireMaxCount, http2,
+                encoding, compression);
+
+        ConnectionProvider provider = ConnectionProvider.builder(serviceName)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(evictInterval)
+                .metrics(true)
+                .build();
+        providers.add(provider);
+
+        HttpClient httpClient = HttpClient.create(provider).compress(compression);
+        if (http2) {
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.ACCEPT, encoding.toString())
+                .filter(deadlinePropagation())
+                .filter(concurrencyLimit(limiter(serviceName)))
+                .filter(loadBalancing(DownstreamLoadBalancer.create(serviceName, env, registry)))
+                .build();
+    }
+
+    /**
+     * Returns the concurrency limiter of the service, one per service whichever transport is used.
+     */
+    public AdaptiveConcurrencyLimiter limiter(String serviceName) {
+        return limiters.computeIfAbsent(serviceName,
+                name -> AdaptiveConcurrencyLimiter.create(name, env, registry));
+    }
+
+    private MediaType encoding(String serviceName, String encoding) {
+        switch (encoding.toLowerCase()) {
+            case "json":
+                return MediaType.APPLICATION_JSON;
+            case "smile":
+                return BinaryCodecCustomizer.APPLICATION_SMILE;
+            case "cbor":
+                return MediaType.APPLICATION_CBOR;
+            default:
+                throw new IllegalArgumentException("Unknown encoding for " + serviceName + ": " + encoding);
+        }
+    }
+
+    private ExchangeFilterFunction deadlinePropagation() {
+        return (request, next) -> Mono.deferContextual(ctx -> {
+            RequestDeadline.check(ctx);
+            return RequestDeadline.remaining(ctx)
+                    .map(remaining -> next.exchange(ClientRequest.from(request)
+                            .header(RequestDeadline.HEADER, String.valueOf(remaining.toMillis()))
+                            .build()))
+                    .orElseGet(() -> next.exchange(request));
+        });
+    }
+
+    private ExchangeFilterFunction concurrencyLimit(AdaptiveConcurrencyLimiter limiter) {
+        return (request, next) -> limiter.acquire().flatMap(permit -> next.exchange(request)
+                .doOnError(ex -> permit.release(true))
+                .doOnCancel(permit::ignore)
+                .map(response -> response.mutate()
+                        .body(body -> body.doFinally(signal -> {
+                            if (signal == SignalType.CANCEL) {
+                                permit.ignore();
+                            } else {
+                                permit.release(signal == SignalType.ON_ERROR
+                                        || response.statusCode().is5xxServerError());
+                            }
+                        }))
+                        .build()));
+    }
+
+    private ExchangeFilterFunction loadBalancing(DownstreamLoadBalancer loadBalancer) {
+        return (request, next) -> Mono.defer(() -> {
+            DownstreamLoadBalancer.Call call = loadBalancer.choose();
+            URI url = UriComponentsBuilder.fromUri(request.url())
+                    .host(call.getInstance().getHost())
+                    .port(call.getInstance().getPort())
+                    .build(true)
+                    .toUri();
+
+            return next.exchange(ClientRequest.from(request).url(url).build())
+                    .doOnError(ex -> call.complete(true))
+                    .doOnCancel(call::ignore)
+                    .map(response -> response.mutate()
+                            .body(body -> body.doFinally(signal -> {
+                                if (signal == SignalType.CANCEL) {
+                                    call.ignore();
+                                } else {
+                                    call.complete(signal == SignalType.ON_ERROR
+                                            || response.statusCode().is5xxServerError());
+                                }
+                            }))
+                            .build());
+        });
+    }
+
+    @Override
+    public void destroy() {
+        providers.forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,160 @@
+package se.magnus.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/*
+ * Keeps the last known-good result per product id from an optional downstream service, i.e. one
+ * whose failures only give a partial composite response.
+ *
+ * When a call fails, or isn't made since the circuit breaker of the service is open, the stored
+ * result is returned instead, with every element marked as stale. If nothing is stored for the
+ * product, an empty list is returned as before. The store is size bounded and entries expire,
+ * so very old data is never served.
+ *
+ * Every fallback, also an empty one, is reported to a degraded flag in the Reactor context if the
+ * caller has put one there with trackDegraded(), e.g. so that a partial result isn't cached.
+ *
+ * With stream(), the elements of a call are passed on as they arrive, and only copied for the store
+ * up to maxElements. A larger result isn't stored, so the memory used per call doesn't grow with the
+ * size of the result, but such a product has no fallback.
+ */
+public class FallbackStore<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FallbackStore.class);
+
+    private static final String DEGRADED_KEY = FallbackStore.class.getName() + ".degraded";
+
+    private final String serviceName;
+    private final int maxElements;
+    private final Cache<Integer, List<T>> store;
+    private final UnaryOperator<T> markStale;
+
+    public FallbackStore(String serviceName, long maximumSize, Duration expireAfterWrite, int maxElements,
+            UnaryOperator<T> markStale, MeterRegistry registry) {
+        this.serviceName = serviceName;
+        this.maxElements = maxElements;
+        this.markStale = markStale;
+        this.store = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, store, "fallback." + serviceName);
+    }
+
+    /**
+     * Reads the settings of a downstream service from app.&lt;service-name&gt;.fallback.
+     *
+     * @param markStale returns a copy of an element, marked as stale
+     */
+    public static <T> FallbackStore<T> create(String serviceName, Environment env, UnaryOperator<T> markStale,
+            MeterRegistry registry) {
+        String prefix = "app." + serviceName + ".fallback.";
+        long maximumSize = env.getProperty(prefix + "maximum-size", Long.class, 10000L);
+        Duration expireAfterWrite = env.getProperty(prefix + "expire-after-write", Duration.class,
+                Duration.ofHours(1));
+        int maxElements = env.getProperty(prefix + "max-elements", Integer.class, 1000);
+
+        LOG.info("Fallback store for {} maximumSize: {}, expireAfterWrite: {}, maxElements: {}", serviceName,
+                maximumSize, expireAfterWrite, maxElements);
+        return new FallbackStore<>(serviceName, maximumSize, expireAfterWrite, maxElements, markStale, registry);
+    }
+
+    public void put(int productId, List<T> result) {
+        store.put(productId, List.copyOf(result));
+    }
+
+    public void evict(int productId) {
+        store.invalidate(productId);
+    }
+
+    /**
+     * Returns the stored result for the product, marked as stale, or an empty list.
+     */
+    public Mono<List<T>> fallback(int productId, Throwable error) {
+        return Mono.deferContextual(ctx -> {
+            ctx.<AtomicBoolean>getOrEmpty(DEGRADED_KEY).ifPresent(degraded -> degraded.set(true));
+            return Mono.fromSupplier(() -> lookup(productId, error));
+        });
+    }
+
+    /**
+     * Passes on the elements of a call and stores them when it completes, unless there are more than
+     * maxElements, then any stored result is evicted. If the call fails before the first element,
+     * the stored result is returned as by fallback(). If it fails later, the elements already passed
+     * on can't be replaced, so the stream ends with them and the degraded flag is set.
+     */
+    public Flux<T> stream(int productId, Flux<T> call) {
+        return Flux.defer(() -> {
+            List<T> received = new ArrayList<>();
+            AtomicBoolean overflow = new AtomicBoolean();
+            AtomicBoolean started = new AtomicBoolean();
+
+            return call
+                    .doOnNext(element -> {
+                        started.set(true);
+                        if (received.size() < maxElements) {
+                            received.add(element);
+                        } else if (overflow.compareAndSet(false, true)) {
+                            received.clear();
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (overflow.get()) {
+                            evict(productId);
+                        } else {
+                            put(productId, received);
+                        }
+                    })
+                    .onErrorResume(error -> started.get()
+                            ? truncated(productId, error)
+                            : fallback(productId, error).flatMapIterable(result -> result));
+        });
+    }
+
+    /**
+     * Sets the flag if a fallback is used by the calls the context is written to.
+     */
+    public static Context trackDegraded(Context ctx, AtomicBoolean degraded) {
+        return ctx.put(DEGRADED_KEY, degraded);
+    }
+
+    private Flux<T> truncated(int productId, Throwable error) {
+        return Flux.deferContextual(ctx -> {
+            ctx.<AtomicBoolean>getOrEmpty(DEGRADED_KEY).ifPresent(degraded -> degraded.set(true));
+            LOG.debug("Call to {} failed for productId: {} after the first element, the result is truncated: {}",
+                    serviceName, productId, error.toString());
+            return Flux.empty();
+        });
+    }
+
+    private List<T> lookup(int productId, Throwable error) {
+        List<T> result = store.getIfPresent(productId);
+        if (result == null) {
+            LOG.debug("Call to {} failed for productId: {}, no fallback stored: {}", serviceName, productId,
+                    error.toString());
+            return Collections.emptyList();
+        }
+
+        LOG.debug("Call to {} failed for productId: {}, returns {} stale elements: {}", serviceName, productId,
+                result.size(), error.toString());
+        return result.stream().map(markStale).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,53 @@
+package se.magnus.microservices.composite.product.services;
+
+import static se.magnus.api.grpc.ProtoMapper.productId;
+import static se.magnus.api.grpc.ProtoMapper.productIds;
+import static se.magnus.api.grpc.ProtoMapper.toApi;
+import static se.magnus.api.grpc.ProtoMapper.toMessage;
+
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.product.Product;
+import se.magnus.api.core.product.ProductService;
+import se.magnus.api.grpc.ProductGrpcServiceGrpc;
+import se.magnus.api.grpc.ProductGrpcServiceGrpc.ProductGrpcServiceStub;
+
+/*
+ * Calls the product service over gRPC, used by ProductCompositeIntegration in place of its
+ * WebClient if app.product-service.transport is grpc.
+ */
+class GrpcProductClient implements ProductService {
+
+    private final DownstreamGrpcChannel channel;
+    private final ProductGrpcServiceStub stub;
+
+    GrpcProductClient(DownstreamGrpcChannel channel) {
+        this.channel = channel;
+        this.stub = ProductGrpcServiceGrpc.newStub(channel.getChannel());
+    }
+
+    @Override
+    public Mono<Product> createProduct(Product body) {
+        return channel.unary(stub, ProductGrpcServiceStub::createProduct, toMessage(body))
+                .map(p -> toApi(p));
+    }
+
+    @Override
+    public Mono<Product> getProduct(int productId) {
+        return channel.unary(stub, ProductGrpcServiceStub::getProduct, productId(productId))
+                .map(p -> toApi(p));
+    }
+
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        return channel.serverStreaming(stub, ProductGrpcServiceStub::getProducts, productIds(productIds))
+                .map(p -> toApi(p));
+    }
+
+    @Override
+    public Mono<Void> deleteProduct(int productId) {
+        return channel.unary(stub, ProductGrpcServiceStub::deleteProduct, productId(productId))
+                .then();
+    }
+}
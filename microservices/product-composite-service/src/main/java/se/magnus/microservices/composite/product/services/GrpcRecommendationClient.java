@@ -0,0 +1,67 @@
+package se.magnus.microservices.composite.product.services;
+
+import static se.magnus.api.grpc.ProtoMapper.productId;
+import static se.magnus.api.grpc.ProtoMapper.productIds;
+import static se.magnus.api.grpc.ProtoMapper.toApi;
+import static se.magnus.api.grpc.ProtoMapper.toMessage;
+
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.recommendation.Recommendation;
+import se.magnus.api.core.recommendation.RecommendationService;
+import se.magnus.api.grpc.ProtoMapper;
+import se.magnus.api.grpc.RecommendationGrpcServiceGrpc;
+import se.magnus.api.grpc.RecommendationGrpcServiceGrpc.RecommendationGrpcServiceStub;
+import se.magnus.api.grpc.RecommendationList;
+
+/*
+ * Calls the recommendation service over gRPC, used by ProductCompositeIntegration in place of its
+ * WebClient if app.recommendation-service.transport is grpc. Lists of recommendations are
+ * server-streamed.
+ */
+class GrpcRecommendationClient implements RecommendationService {
+
+    private final DownstreamGrpcChannel channel;
+    private final RecommendationGrpcServiceStub stub;
+
+    GrpcRecommendationClient(DownstreamGrpcChannel channel) {
+        this.channel = channel;
+        this.stub = RecommendationGrpcServiceGrpc.newStub(channel.getChannel());
+    }
+
+    @Override
+    public Mono<Recommendation> createRecommendation(Recommendation body) {
+        return channel.unary(stub, RecommendationGrpcServiceStub::createRecommendation, toMessage(body))
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Flux<Recommendation> createRecommendations(List<Recommendation> body) {
+        RecommendationList request = RecommendationList.newBuilder()
+                .addAllRecommendations(body.stream().map(ProtoMapper::toMessage).toList())
+                .build();
+        return channel.serverStreaming(stub, RecommendationGrpcServiceStub::createRecommendations, request)
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendations(int productId) {
+        return channel.serverStreaming(stub, RecommendationGrpcServiceStub::getRecommendations,
+                productId(productId))
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+        return channel.serverStreaming(stub, RecommendationGrpcServiceStub::getRecommendationsForProducts,
+                productIds(productIds))
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Mono<Void> deleteRecommendations(int productId) {
+        return channel.unary(stub, RecommendationGrpcServiceStub::deleteRecommendations, productId(productId))
+                .then();
+    }
+}
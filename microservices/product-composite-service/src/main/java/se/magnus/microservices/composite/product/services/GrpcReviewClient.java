@@ -0,0 +1,72 @@
+package se.magnus.microservices.composite.product.services;
+
+import static se.magnus.api.grpc.ProtoMapper.productId;
+import static se.magnus.api.grpc.ProtoMapper.productIds;
+import static se.magnus.api.grpc.ProtoMapper.reviewPage;
+import static se.magnus.api.grpc.ProtoMapper.toApi;
+import static se.magnus.api.grpc.ProtoMapper.toMessage;
+
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewPage;
+import se.magnus.api.core.review.ReviewService;
+import se.magnus.api.grpc.ProtoMapper;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc.ReviewGrpcServiceStub;
+import se.magnus.api.grpc.ReviewList;
+
+/*
+ * Calls the review service over gRPC, used by ProductCompositeIntegration in place of its
+ * WebClient if app.review-service.transport is grpc. Lists of reviews are server-streamed.
+ */
+class GrpcReviewClient implements ReviewService {
+
+    private final DownstreamGrpcChannel channel;
+    private final ReviewGrpcServiceStub stub;
+
+    GrpcReviewClient(DownstreamGrpcChannel channel) {
+        this.channel = channel;
+        this.stub = ReviewGrpcServiceGrpc.newStub(channel.getChannel());
+    }
+
+    @Override
+    public Mono<Review> createReview(Review body) {
+        return channel.unary(stub, ReviewGrpcServiceStub::createReview, toMessage(body))
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Flux<Review> createReviews(List<Review> body) {
+        ReviewList request = ReviewList.newBuilder()
+                .addAllReviews(body.stream().map(ProtoMapper::toMessage).toList())
+                .build();
+        return channel.serverStreaming(stub, ReviewGrpcServiceStub::createReviews, request)
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Flux<Review> getReviews(int productId) {
+        return channel.serverStreaming(stub, ReviewGrpcServiceStub::getReviews, productId(productId))
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Mono<ReviewPage> getReviewPage(int productId, int limit, String after) {
+        return channel.unary(stub, ReviewGrpcServiceStub::getReviewPage, reviewPage(productId, limit, after))
+                .map(p -> toApi(p));
+    }
+
+    @Override
+    public Flux<Review> getReviews(List<Integer> productIds) {
+        return channel.serverStreaming(stub, ReviewGrpcServiceStub::getReviewsForProducts, productIds(productIds))
+                .map(r -> toApi(r));
+    }
+
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+        return channel.unary(stub, ReviewGrpcServiceStub::deleteReviews, productId(productId))
+                .then();
+    }
+}
@@ -0,0 +1,136 @@
+package se.magnus.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Sends a second, identical request to a downstream service if the first one hasn't answered
+ * within the configured percentile of recently observed latencies. Whichever reply arrives first
+ * is used and the other request is cancelled.
+ *
+ * Every request adds maxHedgeRatio tokens to a small bucket and every hedge spends one token,
+ * so hedging can never add more than that share of extra load, e.g. during an outage when all
+ * requests are slow.
+ */
+public class HedgingPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HedgingPolicy.class);
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int RECALCULATE_INTERVAL = 100;
+    private static final double MAX_TOKENS = 10.0;
+
+    private final String serviceName;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double maxHedgeRatio;
+
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private int sampleCount = 0;
+    private int nextSample = 0;
+    private int sinceRecalculation = 0;
+    private volatile long delayNanos;
+    private double tokens = 0;
+
+    private final Counter hedgedCounter;
+    private final Counter suppressedCounter;
+
+    public HedgingPolicy(String serviceName, boolean enabled, double percentile, Duration minDelay,
+            double maxHedgeRatio, MeterRegistry registry) {
+        this.serviceName = serviceName;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.delayNanos = minDelayNanos;
+
+        this.hedgedCounter = Counter.builder("composite.hedging.requests")
+                .tag("service", serviceName).tag("result", "hedged").register(registry);
+        this.suppressedCounter = Counter.builder("composite.hedging.requests")
+                .tag("service", serviceName).tag("result", "suppressed").register(registry);
+        registry.gauge("composite.hedging.delay", Tags.of("service", serviceName),
+                this, p -> p.delayNanos / 1_000_000.0);
+    }
+
+    /**
+     * Reads the settings of a downstream service from app.&lt;service-name&gt;.hedging.
+     */
+    public static HedgingPolicy create(String serviceName, Environment env, MeterRegistry registry) {
+        String prefix = "app." + serviceName + ".hedging.";
+        boolean enabled = env.getProperty(prefix + "enabled", Boolean.class, false);
+        double percentile = env.getProperty(prefix + "percentile", Double.class, 0.95);
+        Duration minDelay = env.getProperty(prefix + "min-delay", Duration.class, Duration.ofMillis(20));
+        double maxHedgeRatio = env.getProperty(prefix + "max-hedge-ratio", Double.class, 0.1);
+
+        LOG.info("Hedging for {} enabled: {}, percentile: {}, minDelay: {}, maxHedgeRatio: {}",
+                serviceName, enabled, percentile, minDelay, maxHedgeRatio);
+        return new HedgingPolicy(serviceName, enabled, percentile, minDelay, maxHedgeRatio, registry);
+    }
+
+    public <T> Flux<T> hedge(Supplier<Flux<T>> call) {
+        if (!enabled) {
+            return Flux.defer(call);
+        }
+
+        return Flux.defer(() -> {
+            addToken();
+            long start = System.nanoTime();
+
+            Mono<List<T>> primary = Flux.defer(call).collectList();
+
+            Mono<List<T>> hedged = Mono.delay(Duration.ofNanos(delayNanos))
+                    .flatMap(tick -> {
+                        if (!tryAcquireToken()) {
+                            suppressedCounter.increment();
+                            return Mono.never();
+                        }
+                        LOG.debug("Sends a hedged request to {}", serviceName);
+                        hedgedCounter.increment();
+                        return Flux.defer(call).collectList();
+                    });
+
+            // Also recorded when the hedged request wins, the slow primary it cancels took at least as long
+            return Mono.firstWithSignal(primary, hedged)
+                    .doOnNext(list -> recordLatency(System.nanoTime() - start))
+                    .flatMapIterable(list -> list);
+        });
+    }
+
+    private synchronized void addToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + maxHedgeRatio);
+    }
+
+    private synchronized boolean tryAcquireToken() {
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        samples[nextSample] = nanos;
+        nextSample = (nextSample + 1) % SAMPLE_SIZE;
+        sampleCount = Math.min(sampleCount + 1, SAMPLE_SIZE);
+
+        if (++sinceRecalculation == RECALCULATE_INTERVAL) {
+            sinceRecalculation = 0;
+            int size = sampleCount;
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            long observed = sorted[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+            delayNanos = Math.max(minDelayNanos, observed);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package se.magnus.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import se.magnus.api.composite.product.ProductAggregate;
+import se.magnus.api.composite.product.RecommendationSummary;
+import se.magnus.api.composite.product.ReviewSummary;
+
+/*
+ * Size bounded cache of assembled product aggregates, keyed by product id.
+ * Caffeine's W-TinyLFU policy keeps frequently read products when the cache is full.
+ * Entries older than refreshAfterWrite are still served while a reload runs in the
+ * background (stale-while-revalidate), entries older than expireAfterWrite are dropped.
+ * Failed loads are never cached, and neither are degraded aggregates, i.e. those loaded while a
+ * fallback store stood in for a failed call, with stale or no recommendations or reviews. Fresh
+ * data is then fetched as soon as it is available.
+ *
+ * The owner of the cache registers the loader that assembles an aggregate with setLoader().
+ */
+@Component
+public class ProductAggregateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+    private static final String CACHE_NAME = "productAggregates";
+
+    private final boolean enabled;
+    private final AsyncLoadingCache<Integer, LoadedAggregate> cache;
+
+    private volatile IntFunction<Mono<ProductAggregate>> loader = productId -> Mono.error(
+            new IllegalStateException("No loader registered for the product aggregate cache"));
+
+    public ProductAggregateCache(
+            MeterRegistry registry,
+            @Value("${app.product-composite.cache.enabled:true}") boolean enabled,
+            @Value("${app.product-composite.cache.maximum-size:10000}") long maximumSize,
+            @Value("${app.product-composite.cache.expire-after-write:5m}") Duration expireAfterWrite,
+            @Value("${app.product-composite.cache.refresh-after-write:1m}") Duration refreshAfterWrite) {
+
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats()
+                .buildAsync((productId, executor) -> load(productId).toFuture());
+
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+
+        LOG.info("Product aggregate cache enabled: {}, maximumSize: {}, expireAfterWrite: {}, refreshAfterWrite: {}",
+                enabled, maximumSize, expireAfterWrite, refreshAfterWrite);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setLoader(IntFunction<Mono<ProductAggregate>> loader) {
+        this.loader = loader;
+    }
+
+    public Mono<ProductAggregate> get(int productId) {
+        if (!enabled) {
+            return Mono.defer(() -> loader.apply(productId));
+        }
+        return Mono.defer(() -> {
+            CompletableFuture<LoadedAggregate> future = cache.get(productId);
+            return Mono.fromFuture(future, true).map(loaded -> {
+                if (loaded.degraded || hasStaleData(loaded.aggregate)) {
+                    LOG.debug("Doesn't cache degraded product aggregate for productId: {}", productId);
+                    cache.asMap().remove(productId, future);
+                }
+                return loaded.aggregate;
+            });
+        });
+    }
+
+    private Mono<LoadedAggregate> load(int productId) {
+        AtomicBoolean degraded = new AtomicBoolean(false);
+        return Mono.defer(() -> loader.apply(productId))
+                .map(aggregate -> new LoadedAggregate(aggregate, degraded.get()))
+                .contextWrite(ctx -> FallbackStore.trackDegraded(ctx, degraded));
+    }
+
+    private boolean hasStaleData(ProductAggregate aggregate) {
+        return (aggregate.getRecommendations() != null
+                && aggregate.getRecommendations().stream().anyMatch(RecommendationSummary::isStale))
+                || (aggregate.getReviews() != null
+                && aggregate.getReviews().stream().anyMatch(ReviewSummary::isStale));
+    }
+
+    public void invalidate(int productId) {
+        if (enabled) {
+            LOG.debug("Invalidates cached product aggregate for productId: {}", productId);
+            cache.synchronous().invalidate(productId);
+        }
+    }
+
+    private static final class LoadedAggregate {
+
+        final ProductAggregate aggregate;
+        final boolean degraded;
+
+        LoadedAggregate(ProductAggregate aggregate, boolean degraded) {
+            this.aggregate = aggregate;
+            this.degraded = degraded;
+        }
+    }
+}
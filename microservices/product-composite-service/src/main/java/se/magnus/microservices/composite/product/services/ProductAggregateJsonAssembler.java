@@ -0,0 +1,161 @@
+package se.magnus.microservices.composite.product.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+
+/*
+ * Assembles the JSON of a product aggregate directly from the JSON returned by the core services,
+ * without mapping it to Product, Recommendation and Review objects and back.
+ *
+ * The downstream responses are read token by token and the fields that are part of the aggregate
+ * are copied as is to the response, all other fields, e.g. productId and serviceAddress of the
+ * recommendations and reviews, are skipped. The service address of the first recommendation and
+ * review is picked up on the way and written to serviceAddresses, an empty string if there are none.
+ * The resulting document has the same layout as a serialized ProductAggregate.
+ *
+ * This is a token copy, not a zero-copy splice: each downstream response is first joined into one
+ * buffer, and the values of the copied fields are parsed and written again by Jackson. What it
+ * saves is the objects of the typed path, not the copying of the bytes.
+ */
+@Component
+public class ProductAggregateJsonAssembler {
+
+    private static final Set<String> PRODUCT_FIELDS = Set.of("productId", "name", "weight");
+    private static final Set<String> RECOMMENDATION_FIELDS = Set.of("recommendationId", "author", "rate",
+            "content", "stale");
+    private static final Set<String> REVIEW_FIELDS = Set.of("reviewId", "author", "subject", "content", "stale");
+    private static final String SERVICE_ADDRESS = "serviceAddress";
+
+    private final JsonFactory jsonFactory;
+
+    public ProductAggregateJsonAssembler(ObjectMapper mapper) {
+        this.jsonFactory = mapper.getFactory();
+    }
+
+    /**
+     * Writes the aggregate to a new buffer. The three input buffers are always released.
+     *
+     * @param product the product, a JSON object
+     * @param recommendations the recommendations of the product, a JSON array
+     * @param reviews the reviews of the product, a JSON array
+     * @param compositeAddress the service address of the composite service
+     */
+    public DataBuffer assemble(DataBuffer product, DataBuffer recommendations, DataBuffer reviews,
+            String compositeAddress, DataBufferFactory bufferFactory) {
+
+        DataBuffer result = bufferFactory.allocateBuffer(
+                product.readableByteCount() + recommendations.readableByteCount() + reviews.readableByteCount());
+        boolean completed = false;
+
+        try (InputStream productIn = product.asInputStream(true);
+                InputStream recommendationsIn = recommendations.asInputStream(true);
+                InputStream reviewsIn = reviews.asInputStream(true);
+                OutputStream out = result.asOutputStream();
+                JsonGenerator generator = jsonFactory.createGenerator(out)) {
+
+            generator.writeStartObject();
+            String productAddress = copyObject(productIn, PRODUCT_FIELDS, generator);
+
+            generator.writeFieldName("recommendations");
+            String recommendationAddress = copyArray(recommendationsIn, RECOMMENDATION_FIELDS, generator);
+
+            generator.writeFieldName("reviews");
+            String reviewAddress = copyArray(reviewsIn, REVIEW_FIELDS, generator);
+
+            generator.writeObjectFieldStart("serviceAddresses");
+            generator.writeStringField("cmp", compositeAddress);
+            generator.writeStringField("pro", productAddress);
+            generator.writeStringField("rev", reviewAddress != null ? reviewAddress : "");
+            generator.writeStringField("rec", recommendationAddress != null ? recommendationAddress : "");
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+            completed = true;
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+
+        } finally {
+            if (!completed) {
+                DataBufferUtils.release(result);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Copies the wanted fields of a single object, without its start and end tokens,
+     * and returns the value of its serviceAddress field.
+     */
+    private String copyObject(InputStream in, Set<String> fields, JsonGenerator generator) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            return copyFields(parser, fields, generator);
+        }
+    }
+
+    /*
+     * Copies an array of objects, keeping only the wanted fields of each object,
+     * and returns the serviceAddress of the first object.
+     */
+    private String copyArray(InputStream in, Set<String> fields, JsonGenerator generator) throws IOException {
+        String serviceAddress = null;
+
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_ARRAY);
+            generator.writeStartArray();
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                generator.writeStartObject();
+                String address = copyFields(parser, fields, generator);
+                generator.writeEndObject();
+                if (serviceAddress == null) {
+                    serviceAddress = address;
+                }
+            }
+
+            expect(parser.currentToken(), JsonToken.END_ARRAY);
+            generator.writeEndArray();
+        }
+        return serviceAddress;
+    }
+
+    private String copyFields(JsonParser parser, Set<String> fields, JsonGenerator generator) throws IOException {
+        String serviceAddress = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if (fields.contains(name)) {
+                generator.writeFieldName(name);
+                generator.copyCurrentStructure(parser);
+            } else if (SERVICE_ADDRESS.equals(name) && value == JsonToken.VALUE_STRING) {
+                serviceAddress = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        expect(parser.currentToken(), JsonToken.END_OBJECT);
+        return serviceAddress;
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected JSON from downstream service, expected " + expected + " but got " + actual);
+        }
+    }
+}
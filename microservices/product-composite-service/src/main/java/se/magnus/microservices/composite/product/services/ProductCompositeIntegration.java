@@ -1,16 +1,25 @@
 package se.magnus.microservices.composite.product.services;
 
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import static java.util.logging.Level.FINE;
-import static reactor.core.publisher.Flux.empty;
 
-import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -21,27 +30,57 @@ import se.magnus.api.core.product.ProductService;
 import se.magnus.api.core.recommendation.Recommendation;
 import se.magnus.api.core.recommendation.RecommendationService;
 import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewPage;
 import se.magnus.api.core.review.ReviewService;
+import se.magnus.api.exceptions.DeadlineExceededException;
 import se.magnus.api.exceptions.InvalidInputException;
 import se.magnus.api.exceptions.NotFoundException;
+import se.magnus.api.exceptions.ServiceUnavailableException;
 import se.magnus.util.http.HttpErrorInfo;
+import se.magnus.util.http.RequestDeadline;
+import se.magnus.util.metrics.ReactiveInstrumentation;
 
 @Component
 public class ProductCompositeIntegration implements ProductService, RecommendationService, ReviewService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeIntegration.class);
     private static final String PROTOCOL_HTTP = "http://";
+    private static final String PRODUCT_SERVICE = "product-service";
+    private static final String RECOMMENDATION_SERVICE = "recommendation-service";
+    private static final String REVIEW_SERVICE = "review-service";
+
+    private final WebClient productClient;
+    private final WebClient recommendationClient;
+    private final WebClient reviewClient;
+
+    // Set if the service is called over gRPC instead of with the WebClient, see DownstreamGrpcChannelFactory
+    private final ProductService productGrpcClient;
+    private final RecommendationService recommendationGrpcClient;
+    private final ReviewService reviewGrpcClient;
 
-    private final WebClient webClient;
+    private final ReactiveInstrumentation instrumentation;
     private final ObjectMapper mapper;
 
+    private final HedgingPolicy recommendationHedging;
+    private final HedgingPolicy reviewHedging;
+
+    private final CircuitBreaker recommendationCircuitBreaker;
+    private final CircuitBreaker reviewCircuitBreaker;
+    private final FallbackStore<Recommendation> recommendationFallback;
+    private final FallbackStore<Review> reviewFallback;
+
     private final String productServiceUrl;
     private final String recommendationServiceUrl;
     private final String reviewServiceUrl;
 
     public ProductCompositeIntegration(
-            WebClient.Builder webClient,
+            DownstreamWebClientFactory webClientFactory,
+            DownstreamGrpcChannelFactory grpcChannelFactory,
+            Environment env,
+            MeterRegistry registry,
+            ReactiveInstrumentation instrumentation,
             ObjectMapper mapper,
+            CircuitBreakerRegistry circuitBreakerRegistry,
             @Value("${app.product-service.host}") String productServiceHost,
             @Value("${app.product-service.port}") int productServicePort,
             @Value("${app.recommendation-service.host}") String recommendationServiceHost,
@@ -49,9 +88,28 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
             @Value("${app.review-service.host}") String reviewServiceHost,
             @Value("${app.review-service.port}") int reviewServicePort) {
 
-        this.webClient = webClient.build();
+        this.productClient = webClientFactory.create(PRODUCT_SERVICE);
+        this.recommendationClient = webClientFactory.create(RECOMMENDATION_SERVICE);
+        this.reviewClient = webClientFactory.create(REVIEW_SERVICE);
+        this.productGrpcClient = grpcChannelFactory.isEnabled(PRODUCT_SERVICE)
+                ? new GrpcProductClient(grpcChannelFactory.create(PRODUCT_SERVICE)) : null;
+        this.recommendationGrpcClient = grpcChannelFactory.isEnabled(RECOMMENDATION_SERVICE)
+                ? new GrpcRecommendationClient(grpcChannelFactory.create(RECOMMENDATION_SERVICE)) : null;
+        this.reviewGrpcClient = grpcChannelFactory.isEnabled(REVIEW_SERVICE)
+                ? new GrpcReviewClient(grpcChannelFactory.create(REVIEW_SERVICE)) : null;
+        this.instrumentation = instrumentation;
         this.mapper = mapper;
 
+        this.recommendationHedging = HedgingPolicy.create(RECOMMENDATION_SERVICE, env, registry);
+        this.reviewHedging = HedgingPolicy.create(REVIEW_SERVICE, env, registry);
+
+        this.recommendationCircuitBreaker = circuitBreakerRegistry.circuitBreaker(RECOMMENDATION_SERVICE);
+        this.reviewCircuitBreaker = circuitBreakerRegistry.circuitBreaker(REVIEW_SERVICE);
+        this.recommendationFallback = FallbackStore.create(RECOMMENDATION_SERVICE, env,
+                ProductCompositeIntegration::staleCopy, registry);
+        this.reviewFallback = FallbackStore.create(REVIEW_SERVICE, env, ProductCompositeIntegration::staleCopy,
+                registry);
+
         productServiceUrl = PROTOCOL_HTTP + productServiceHost + ":" + productServicePort;
         recommendationServiceUrl = PROTOCOL_HTTP + recommendationServiceHost + ":" + recommendationServicePort;
         reviewServiceUrl = PROTOCOL_HTTP + reviewServiceHost + ":" + reviewServicePort;
@@ -63,8 +121,12 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = productServiceUrl;
         LOG.debug("Will post a new product to URL: {}", url);
 
-        return webClient.post().uri(url).bodyValue(body).retrieve().bodyToMono(Product.class)
-                .log(LOG.getName(), FINE)
+        Mono<Product> call = productGrpcClient != null ? productGrpcClient.createProduct(body)
+                : productClient.post().uri(url).bodyValue(body).retrieve().bodyToMono(Product.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(PRODUCT_SERVICE, "createProduct"))
                 .doOnNext(product -> LOG.debug("Created a product with id: {}", product.getProductId()))
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
@@ -74,7 +136,26 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = productServiceUrl + "/product/" + productId;
         LOG.debug("Will call the getProduct API on URL: {}", url);
 
-        return webClient.get().uri(url).retrieve().bodyToMono(Product.class).log(LOG.getName(), FINE)
+        Mono<Product> call = productGrpcClient != null ? productGrpcClient.getProduct(productId)
+                : productClient.get().uri(url).retrieve().bodyToMono(Product.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(PRODUCT_SERVICE, "getProduct"))
+                .onErrorMap(WebClientResponseException.class, this::handleException);
+    }
+
+    @Override
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        String url = productServiceUrl + "/product?productIds=" + joinIds(productIds);
+        LOG.debug("Will call the getProducts API on URL: {}", url);
+
+        Flux<Product> call = productGrpcClient != null ? productGrpcClient.getProducts(productIds)
+                : productClient.get().uri(url).retrieve().bodyToFlux(Product.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(PRODUCT_SERVICE, "getProducts"))
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
 
@@ -83,8 +164,12 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = productServiceUrl + "/product/" + productId;
         LOG.debug("Will call the deleteProduct API on URL: {}", url);
 
-        return webClient.delete().uri(url).retrieve().bodyToMono(Void.class)
-                .log(LOG.getName(), FINE)
+        Mono<Void> call = productGrpcClient != null ? productGrpcClient.deleteProduct(productId)
+                : productClient.delete().uri(url).retrieve().bodyToMono(Void.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(PRODUCT_SERVICE, "deleteProduct"))
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
 
@@ -94,13 +179,34 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = recommendationServiceUrl + "/recommendation";
         LOG.debug("Will post a new recommendation to URL: {}", url);
 
-        return webClient.post().uri(url).bodyValue(body).retrieve().bodyToMono(Recommendation.class)
-                .log(LOG.getName(), FINE)
+        Mono<Recommendation> call = recommendationGrpcClient != null
+                ? recommendationGrpcClient.createRecommendation(body)
+                : recommendationClient.post().uri(url).bodyValue(body).retrieve().bodyToMono(Recommendation.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(RECOMMENDATION_SERVICE, "createRecommendation"))
                 .doOnNext(recommendation -> LOG.debug("Created a recommendation with id: {}",
                         recommendation.getProductId()))
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
 
+    @Override
+    public Flux<Recommendation> createRecommendations(List<Recommendation> body) {
+
+        String url = recommendationServiceUrl + "/recommendation/batch";
+        LOG.debug("Will post {} new recommendations to URL: {}", body.size(), url);
+
+        Flux<Recommendation> call = recommendationGrpcClient != null
+                ? recommendationGrpcClient.createRecommendations(body)
+                : recommendationClient.post().uri(url).bodyValue(body).retrieve().bodyToFlux(Recommendation.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(RECOMMENDATION_SERVICE, "createRecommendations"))
+                .onErrorMap(WebClientResponseException.class, this::handleException);
+    }
+
     @Override
     public Flux<Recommendation> getRecommendations(int productId) {
 
@@ -108,10 +214,42 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
 
         LOG.debug("Will call the getRecommendations API on URL: {}", url);
 
-        // Return an empty result if something goes wrong to make it possible for the
-        // composite service to return partial responses
-        return webClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class).log(LOG.getName(), FINE)
-                .onErrorResume(error -> empty());
+        // Return the last known recommendations, marked as stale, or an empty result if something
+        // goes wrong to make it possible for the composite service to return partial responses.
+        // The recommendations are passed on as they arrive, see FallbackStore.stream()
+        return recommendationFallback.stream(productId, recommendationHedging
+                .hedge(() -> recommendationGrpcClient != null ? recommendationGrpcClient.getRecommendations(productId)
+                        : recommendationClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class))
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(RECOMMENDATION_SERVICE, "getRecommendations"))
+                .transformDeferred(CircuitBreakerOperator.of(recommendationCircuitBreaker)));
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+
+        String url = recommendationServiceUrl + "/recommendation?productIds=" + joinIds(productIds);
+
+        LOG.debug("Will call the batch getRecommendations API on URL: {}", url);
+
+        // Return the last known recommendations, marked as stale, or an empty result if something
+        // goes wrong to make it possible for the composite service to return partial responses
+        Flux<Recommendation> call = recommendationGrpcClient != null
+                ? recommendationGrpcClient.getRecommendations(productIds)
+                : recommendationClient.get().uri(url).retrieve().bodyToFlux(Recommendation.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(RECOMMENDATION_SERVICE, "getRecommendationsBatch"))
+                .transformDeferred(CircuitBreakerOperator.of(recommendationCircuitBreaker))
+                .collectMultimap(Recommendation::getProductId)
+                .doOnNext(byProductId -> productIds.forEach(productId -> recommendationFallback.put(productId,
+                        List.copyOf(byProductId.getOrDefault(productId, List.of())))))
+                .flatMapIterable(byProductId -> byProductId.values())
+                .flatMapIterable(recommendations -> recommendations)
+                .onErrorResume(error -> Flux.fromIterable(productIds)
+                        .concatMap(productId -> recommendationFallback.fallback(productId, error))
+                        .flatMapIterable(recommendations -> recommendations));
     }
 
     @Override
@@ -119,8 +257,12 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = recommendationServiceUrl + "/recommendation" + "?productId=" + productId;
         LOG.debug("Will call the deleteRecommendations API on URL: {}", url);
 
-        return webClient.delete().uri(url).retrieve().bodyToMono(Void.class)
-                .log(LOG.getName(), FINE)
+        Mono<Void> call = recommendationGrpcClient != null ? recommendationGrpcClient.deleteRecommendations(productId)
+                : recommendationClient.delete().uri(url).retrieve().bodyToMono(Void.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(RECOMMENDATION_SERVICE, "deleteRecommendations"))
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
 
@@ -130,12 +272,31 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = reviewServiceUrl + "/review";
         LOG.debug("Will post a new review to URL: {}", url);
 
-        return webClient.post().uri(url).bodyValue(body).retrieve().bodyToMono(Review.class)
-                .log(LOG.getName(), FINE)
+        Mono<Review> call = reviewGrpcClient != null ? reviewGrpcClient.createReview(body)
+                : reviewClient.post().uri(url).bodyValue(body).retrieve().bodyToMono(Review.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REVIEW_SERVICE, "createReview"))
                 .doOnNext(review -> LOG.debug("Created a review with id: {}", review.getProductId()))
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
 
+    @Override
+    public Flux<Review> createReviews(List<Review> body) {
+
+        String url = reviewServiceUrl + "/review/batch";
+        LOG.debug("Will post {} new reviews to URL: {}", body.size(), url);
+
+        Flux<Review> call = reviewGrpcClient != null ? reviewGrpcClient.createReviews(body)
+                : reviewClient.post().uri(url).bodyValue(body).retrieve().bodyToFlux(Review.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REVIEW_SERVICE, "createReviews"))
+                .onErrorMap(WebClientResponseException.class, this::handleException);
+    }
+
     @Override
     public Flux<Review> getReviews(int productId) {
 
@@ -143,10 +304,58 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
 
         LOG.debug("Will call the getReviews API on URL: {}", url);
 
-        // Return an empty result if something goes wrong to make it possible for the
-        // composite service to return partial responses
-        return webClient.get().uri(url).retrieve().bodyToFlux(Review.class).log(LOG.getName(), FINE)
-                .onErrorResume(error -> empty());
+        // Return the last known reviews, marked as stale, or an empty result if something goes
+        // wrong to make it possible for the composite service to return partial responses. The
+        // reviews are passed on as they arrive, see FallbackStore.stream()
+        return reviewFallback.stream(productId, reviewHedging
+                .hedge(() -> reviewGrpcClient != null ? reviewGrpcClient.getReviews(productId)
+                        : reviewClient.get().uri(url).retrieve().bodyToFlux(Review.class))
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REVIEW_SERVICE, "getReviews"))
+                .transformDeferred(CircuitBreakerOperator.of(reviewCircuitBreaker)));
+    }
+
+    @Override
+    public Mono<ReviewPage> getReviewPage(int productId, int limit, String after) {
+
+        String url = reviewServiceUrl + "/review?productId=" + productId + "&limit=" + limit
+                + (after != null ? "&after=" + after : "");
+
+        LOG.debug("Will call the getReviewPage API on URL: {}", url);
+
+        Mono<ReviewPage> call = reviewGrpcClient != null ? reviewGrpcClient.getReviewPage(productId, limit, after)
+                : reviewClient.get().uri(url).retrieve().bodyToMono(ReviewPage.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REVIEW_SERVICE, "getReviewPage"))
+                .onErrorMap(WebClientResponseException.class, this::handleException);
+    }
+
+    @Override
+    public Flux<Review> getReviews(List<Integer> productIds) {
+
+        String url = reviewServiceUrl + "/review?productIds=" + joinIds(productIds);
+
+        LOG.debug("Will call the batch getReviews API on URL: {}", url);
+
+        // Return the last known reviews, marked as stale, or an empty result if something goes
+        // wrong to make it possible for the composite service to return partial responses
+        Flux<Review> call = reviewGrpcClient != null ? reviewGrpcClient.getReviews(productIds)
+                : reviewClient.get().uri(url).retrieve().bodyToFlux(Review.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REVIEW_SERVICE, "getReviewsBatch"))
+                .transformDeferred(CircuitBreakerOperator.of(reviewCircuitBreaker))
+                .collectMultimap(Review::getProductId)
+                .doOnNext(byProductId -> productIds.forEach(productId -> reviewFallback.put(productId,
+                        List.copyOf(byProductId.getOrDefault(productId, List.of())))))
+                .flatMapIterable(byProductId -> byProductId.values())
+                .flatMapIterable(reviews -> reviews)
+                .onErrorResume(error -> Flux.fromIterable(productIds)
+                        .concatMap(productId -> reviewFallback.fallback(productId, error))
+                        .flatMapIterable(reviews -> reviews));
     }
 
     @Override
@@ -154,11 +363,100 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
         String url = reviewServiceUrl + "/review" + "?productId=" + productId;
         LOG.debug("Will call the deleteReviews API on URL: {}", url);
 
-        return webClient.delete().uri(url).retrieve().bodyToMono(Void.class)
-                .log(LOG.getName(), FINE)
+        Mono<Void> call = reviewGrpcClient != null ? reviewGrpcClient.deleteReviews(productId)
+                : reviewClient.delete().uri(url).retrieve().bodyToMono(Void.class);
+
+        return call
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REVIEW_SERVICE, "deleteReviews"))
                 .onErrorMap(WebClientResponseException.class, this::handleException);
     }
 
+    /**
+     * Returns the product as the unparsed JSON from the product service.
+     */
+    public Mono<DataBuffer> getProductJson(int productId) {
+        String url = productServiceUrl + "/product/" + productId;
+        LOG.debug("Will call the getProduct API for raw JSON on URL: {}", url);
+
+        return DataBufferUtils.join(productClient.get().uri(url).accept(APPLICATION_JSON).retrieve()
+                .bodyToFlux(DataBuffer.class))
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(PRODUCT_SERVICE, "getProductJson"))
+                .onErrorMap(WebClientResponseException.class, this::handleException);
+    }
+
+    /**
+     * Returns the recommendations as the unparsed JSON array from the recommendation service,
+     * hedged as getRecommendations(). If something goes wrong, the last known recommendations are
+     * returned from the same fallback store as getRecommendations(), marked as stale, or an empty
+     * array. The store is only filled by getRecommendations(), since the JSON isn't parsed here.
+     */
+    public Mono<DataBuffer> getRecommendationsJson(int productId) {
+        String url = recommendationServiceUrl + "/recommendation?productId=" + productId;
+        LOG.debug("Will call the getRecommendations API for raw JSON on URL: {}", url);
+
+        return recommendationHedging
+                .hedge(() -> DataBufferUtils.join(recommendationClient.get().uri(url).accept(APPLICATION_JSON)
+                        .retrieve().bodyToFlux(DataBuffer.class)).flux())
+                .single()
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(RECOMMENDATION_SERVICE, "getRecommendationsJson"))
+                .transformDeferred(CircuitBreakerOperator.of(recommendationCircuitBreaker))
+                .onErrorResume(error -> recommendationFallback.fallback(productId, error).flatMap(this::toJsonArray));
+    }
+
+    /**
+     * Returns the reviews as the unparsed JSON array from the review service, hedged as
+     * getReviews(). If something goes wrong, the last known reviews are returned from the same
+     * fallback store as getReviews(), marked as stale, or an empty array. The store is only filled
+     * by getReviews(), since the JSON isn't parsed here.
+     */
+    public Mono<DataBuffer> getReviewsJson(int productId) {
+        String url = reviewServiceUrl + "/review?productId=" + productId;
+        LOG.debug("Will call the getReviews API for raw JSON on URL: {}", url);
+
+        return reviewHedging
+                .hedge(() -> DataBufferUtils.join(reviewClient.get().uri(url).accept(APPLICATION_JSON).retrieve()
+                        .bodyToFlux(DataBuffer.class)).flux())
+                .single()
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REVIEW_SERVICE, "getReviewsJson"))
+                .transformDeferred(CircuitBreakerOperator.of(reviewCircuitBreaker))
+                .onErrorResume(error -> reviewFallback.fallback(productId, error).flatMap(this::toJsonArray));
+    }
+
+    /**
+     * Drops the last known recommendations and reviews of the product, e.g. when it's deleted.
+     */
+    public void evictFallbacks(int productId) {
+        recommendationFallback.evict(productId);
+        reviewFallback.evict(productId);
+    }
+
+    private Mono<DataBuffer> toJsonArray(List<?> elements) {
+        return Mono.fromCallable(() -> DefaultDataBufferFactory.sharedInstance.wrap(
+                mapper.writeValueAsBytes(elements)));
+    }
+
+    private static Recommendation staleCopy(Recommendation r) {
+        Recommendation copy = new Recommendation(r.getProductId(), r.getRecommendationId(), r.getAuthor(), r.getRate(),
+                r.getContent(), r.getServiceAddress());
+        copy.setStale(true);
+        return copy;
+    }
+
+    private static Review staleCopy(Review r) {
+        Review copy = new Review(r.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(),
+                r.getServiceAddress());
+        copy.setStale(true);
+        return copy;
+    }
+
+    private String joinIds(List<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
     private Throwable handleException(Throwable ex) {
 
         if (!(ex instanceof WebClientResponseException)) {
@@ -180,6 +478,12 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
                 case UNPROCESSABLE_ENTITY:
                     return new InvalidInputException(getErrorMessage(wcre));
 
+                case GATEWAY_TIMEOUT:
+                    return new DeadlineExceededException(getErrorMessage(wcre));
+
+                case SERVICE_UNAVAILABLE:
+                    return new ServiceUnavailableException(getErrorMessage(wcre), wcre);
+
                 default:
                     LOG.warn("Got an unexpected HTTP error: {}, will rethrow it", wcre.getStatusCode());
                     LOG.warn("Error body: {}", wcre.getResponseBodyAsString());
@@ -193,9 +497,11 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
     }
 
     private String getErrorMessage(WebClientResponseException ex) {
+        // Decoded by the content type, the error body is JSON, Smile or CBOR depending on the encoding
         try {
-            return mapper.readValue(ex.getResponseBodyAsString(), HttpErrorInfo.class).getMessage();
-        } catch (IOException ioex) {
+            HttpErrorInfo errorInfo = ex.getResponseBodyAs(HttpErrorInfo.class);
+            return errorInfo != null ? errorInfo.getMessage() : ex.getMessage();
+        } catch (RuntimeException rex) {
             return ex.getMessage();
         }
     }
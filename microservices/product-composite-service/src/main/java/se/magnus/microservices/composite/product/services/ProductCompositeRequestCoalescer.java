@@ -0,0 +1,85 @@
+package se.magnus.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import se.magnus.api.composite.product.ProductAggregate;
+
+/*
+ * Lets concurrent composite reads of the same product id share one in-flight call to the
+ * core services. The first caller for a product id starts the fan-out; callers arriving
+ * while it is still running join that call and get the same result (or error).
+ * The entry is removed as soon as the shared call terminates, so nothing is cached beyond
+ * the lifetime of the call itself.
+ *
+ * Only used when the product aggregate cache is disabled: Caffeine's AsyncLoadingCache already
+ * lets concurrent reads of a product share one load, so with the cache enabled every read here
+ * would be a leader and composite.coalescing.requests{result=joined} would stay at zero.
+ */
+@Component
+public class ProductCompositeRequestCoalescer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeRequestCoalescer.class);
+
+    private final Map<Integer, Mono<ProductAggregate>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaderCounter;
+    private final Counter joinedCounter;
+
+    public ProductCompositeRequestCoalescer(MeterRegistry registry) {
+        this.leaderCounter = Counter.builder("composite.coalescing.requests")
+                .description("Composite reads that started a new fan-out to the core services")
+                .tag("result", "leader")
+                .register(registry);
+        this.joinedCounter = Counter.builder("composite.coalescing.requests")
+                .description("Composite reads that joined an already in-flight fan-out")
+                .tag("result", "joined")
+                .register(registry);
+        registry.gauge("composite.coalescing.in-flight", inFlight, Map::size);
+    }
+
+    public Mono<ProductAggregate> coalesce(int productId, Supplier<Mono<ProductAggregate>> loader) {
+        return Mono.defer(() -> {
+            AtomicBoolean leader = new AtomicBoolean(false);
+            Mono<ProductAggregate> call = inFlight.computeIfAbsent(productId, id -> {
+                leader.set(true);
+                return createSharedCall(id, loader);
+            });
+
+            if (leader.get()) {
+                leaderCounter.increment();
+            } else {
+                LOG.debug("Joining in-flight composite call for productId: {}", productId);
+                joinedCounter.increment();
+            }
+            return call;
+        });
+    }
+
+    /*
+     * Called when the product is written. Callers that already joined the in-flight call still get
+     * its result, but later reads start a new call instead of joining one that began before the write.
+     */
+    public void invalidate(int productId) {
+        if (inFlight.remove(productId) != null) {
+            LOG.debug("Dropped in-flight composite call for productId: {}", productId);
+        }
+    }
+
+    private Mono<ProductAggregate> createSharedCall(int productId, Supplier<Mono<ProductAggregate>> loader) {
+        AtomicReference<Mono<ProductAggregate>> self = new AtomicReference<>();
+        Mono<ProductAggregate> shared = Mono.defer(loader)
+                .doFinally(signal -> inFlight.remove(productId, self.get()))
+                .share();
+        self.set(shared);
+        return shared;
+    }
+}
@@ -1,33 +1,76 @@
 package se.magnus.microservices.composite.product.services;
 
-import static java.util.logging.Level.FINE;
-
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import se.magnus.api.composite.product.*;
 import se.magnus.api.core.product.Product;
 import se.magnus.api.core.recommendation.Recommendation;
 import se.magnus.api.core.review.Review;
+import se.magnus.api.exceptions.InvalidInputException;
+import se.magnus.util.http.ConditionalRequests;
+import se.magnus.util.http.RequestDeadline;
 import se.magnus.util.http.ServiceUtil;
+import se.magnus.util.metrics.ReactiveInstrumentation;
 
 @RestController
 public class ProductCompositeServiceImpl implements ProductCompositeService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeServiceImpl.class);
 
+  private static final String SERVICE = "product-composite";
+
   private final ServiceUtil serviceUtil;
   private final ProductCompositeIntegration integration;
+  private final ProductCompositeRequestCoalescer coalescer;
+  private final ProductAggregateCache cache;
+  private final ProductAggregateJsonAssembler assembler;
+  private final ReactiveInstrumentation instrumentation;
+  private final int maxBatchSize;
+
+  private final Duration createProductBudget;
+  private final Duration getProductBudget;
+  private final Duration getProductsBudget;
+  private final Duration deleteProductBudget;
 
   @Autowired
-  public ProductCompositeServiceImpl(ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+  public ProductCompositeServiceImpl(ServiceUtil serviceUtil, ProductCompositeIntegration integration,
+      ProductCompositeRequestCoalescer coalescer, ProductAggregateCache cache, ProductAggregateJsonAssembler assembler,
+      ReactiveInstrumentation instrumentation,
+      @Value("${app.product-composite.max-batch-size:200}") int maxBatchSize,
+      @Value("${app.product-composite.deadline.create-product:10s}") Duration createProductBudget,
+      @Value("${app.product-composite.deadline.get-product:3s}") Duration getProductBudget,
+      @Value("${app.product-composite.deadline.get-products:5s}") Duration getProductsBudget,
+      @Value("${app.product-composite.deadline.delete-product:10s}") Duration deleteProductBudget) {
     this.serviceUtil = serviceUtil;
+    this.maxBatchSize = maxBatchSize;
+    this.createProductBudget = createProductBudget;
+    this.getProductBudget = getProductBudget;
+    this.getProductsBudget = getProductsBudget;
+    this.deleteProductBudget = deleteProductBudget;
     this.integration = integration;
+    this.coalescer = coalescer;
+    this.cache = cache;
+    this.assembler = assembler;
+    this.instrumentation = instrumentation;
+    // Caffeine already shares one load between concurrent reads of a product, so reads are only
+    // coalesced when the cache is disabled
+    this.cache.setLoader(cache.isEnabled()
+        ? productId -> getProductAggregate(productId)
+        : productId -> coalescer.coalesce(productId, () -> getProductAggregate(productId)));
   }
 
   @Override
@@ -42,26 +85,30 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
       Product product = new Product(body.getProductId(), body.getName(), body.getWeight(), null);
       monoList.add(integration.createProduct(product));
 
-      if (body.getRecommendations() != null) {
-        body.getRecommendations().forEach(r -> {
-          Recommendation recommendation = new Recommendation(body.getProductId(), r.getRecommendationId(),
-              r.getAuthor(), r.getRate(), r.getContent(), null);
-          monoList.add(integration.createRecommendation(recommendation));
-        });
+      if (body.getRecommendations() != null && !body.getRecommendations().isEmpty()) {
+        List<Recommendation> recommendations = body.getRecommendations().stream()
+            .map(r -> new Recommendation(body.getProductId(), r.getRecommendationId(), r.getAuthor(), r.getRate(),
+                r.getContent(), null))
+            .collect(Collectors.toList());
+        monoList.add(integration.createRecommendations(recommendations).collectList());
       }
 
-      if (body.getReviews() != null) {
-        body.getReviews().forEach(r -> {
-          Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(),
-              r.getContent(), null);
-          monoList.add(integration.createReview(review));
-        });
+      if (body.getReviews() != null && !body.getReviews().isEmpty()) {
+        List<Review> reviews = body.getReviews().stream()
+            .map(r -> new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(),
+                null))
+            .collect(Collectors.toList());
+        monoList.add(integration.createReviews(reviews).collectList());
       }
 
       LOG.debug("createCompositeProduct: composite entities created for productId: {}", body.getProductId());
 
+      invalidate(body.getProductId());
+
       return Mono.zip(r -> "", monoList.toArray(new Mono[0]))
           .doOnError(ex -> LOG.warn("createCompositeProduct failed: {}", ex.toString()))
+          .doFinally(s -> invalidate(body.getProductId()))
+          .contextWrite(ctx -> RequestDeadline.withBudget(ctx, createProductBudget))
           .then();
 
     } catch (RuntimeException re) {
@@ -70,10 +117,49 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
     }
   }
 
+  // A read that misses the cache after a write must not get an aggregate loaded before it, nor fall
+  // back to the recommendations and reviews of the product before it
+  private void invalidate(int productId) {
+    cache.invalidate(productId);
+    coalescer.invalidate(productId);
+    integration.evictFallbacks(productId);
+  }
+
   @Override
   public Mono<ProductAggregate> getProduct(int productId) {
 
     LOG.info("Will get composite product info for product.id={}", productId);
+    return cache.get(productId)
+        .flatMap(aggregate -> ConditionalRequests.ifNoneMatch(etag(aggregate), () -> aggregate));
+  }
+
+  /**
+   * The ETag of an aggregate is a hash of its content, the service addresses are left out since
+   * they depend on which instances served the request. Product ids, and thereby the @Version based
+   * ETags of the core services, are reused when a product is deleted and created again, so the
+   * content is hashed rather than the versions. Hashing is still much cheaper than serializing the
+   * aggregate, and a cached aggregate with a matching ETag is neither assembled nor serialized.
+   */
+  static String etag(ProductAggregate aggregate) {
+    ConditionalRequests.Builder etag = ConditionalRequests.etag()
+        .add(aggregate.getProductId()).add(aggregate.getName()).add(aggregate.getWeight());
+    List<RecommendationSummary> recommendations = nullSafe(aggregate.getRecommendations());
+    etag.add(recommendations.size());
+    recommendations.forEach(r -> etag.add(r.getRecommendationId()).add(r.getAuthor()).add(r.getRate())
+        .add(r.getContent()).add(r.isStale() ? 1 : 0));
+    List<ReviewSummary> reviews = nullSafe(aggregate.getReviews());
+    etag.add(reviews.size());
+    reviews.forEach(r -> etag.add(r.getReviewId()).add(r.getAuthor()).add(r.getSubject())
+        .add(r.getContent()).add(r.isStale() ? 1 : 0));
+    return etag.build();
+  }
+
+  private static <T> List<T> nullSafe(List<T> list) {
+    return list == null ? Collections.emptyList() : list;
+  }
+
+  private Mono<ProductAggregate> getProductAggregate(int productId) {
+
     return Mono.zip(
         values -> createProductAggregate((Product) values[0], (List<Recommendation>) values[1],
             (List<Review>) values[2], serviceUtil.getServiceAddress()),
@@ -81,7 +167,82 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
         integration.getRecommendations(productId).collectList(),
         integration.getReviews(productId).collectList())
         .doOnError(ex -> LOG.warn("getCompositeProduct failed: {}", ex.toString()))
-        .log(LOG.getName(), FINE);
+        .transform(instrumentation.mono(SERVICE, "getProductAggregate"))
+        // Loads are shared by all callers through the cache, so the budget is set per load
+        .contextWrite(ctx -> RequestDeadline.withBudget(ctx, getProductBudget));
+  }
+
+  @Override
+  public Mono<DataBuffer> getProductSpliced(int productId) {
+
+    LOG.info("Will get spliced composite product info for product.id={}", productId);
+
+    // Bypasses the cache, the aggregate is written straight from the downstream JSON
+    return Mono.zip(
+        integration.getProductJson(productId),
+        integration.getRecommendationsJson(productId),
+        integration.getReviewsJson(productId))
+        .map(t -> assembler.assemble(t.getT1(), t.getT2(), t.getT3(), serviceUtil.getServiceAddress(),
+            DefaultDataBufferFactory.sharedInstance))
+        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+        .doOnError(ex -> LOG.warn("getCompositeProductSpliced failed: {}", ex.toString()))
+        .contextWrite(ctx -> RequestDeadline.withBudget(ctx, getProductBudget));
+  }
+
+  @Override
+  public Flux<ProductAggregateStreamElement> getProductStream(int productId) {
+
+    LOG.info("Will stream composite product info for product.id={}", productId);
+
+    Flux<ProductAggregateStreamElement> product = integration.getProduct(productId)
+        .map(p -> new ProductAggregateStreamElement(new ProductAggregate(p.getProductId(), p.getName(), p.getWeight(),
+            null, null, new ServiceAddresses(serviceUtil.getServiceAddress(), p.getServiceAddress(), null, null))))
+        .flux();
+
+    Flux<ProductAggregateStreamElement> recommendations = integration.getRecommendations(productId)
+        .map(r -> new ProductAggregateStreamElement(
+            new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(),
+                r.isStale())));
+
+    Flux<ProductAggregateStreamElement> reviews = integration.getReviews(productId)
+        .map(r -> new ProductAggregateStreamElement(
+            new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), r.isStale())));
+
+    // All three calls start at once, recommendations and reviews arriving before the product
+    // are held back until the product has been sent
+    return Flux.mergeSequential(product, Flux.merge(recommendations, reviews))
+        .doOnError(ex -> LOG.warn("getCompositeProductStream failed: {}", ex.toString()))
+        .contextWrite(ctx -> RequestDeadline.withBudget(ctx, getProductBudget));
+  }
+
+  @Override
+  public Flux<ProductAggregate> getProducts(List<Integer> ids) {
+
+    if (ids.isEmpty() || ids.size() > maxBatchSize) {
+      throw new InvalidInputException("Invalid number of product ids: " + ids.size() + ", expected 1-" + maxBatchSize);
+    }
+
+    List<Integer> productIds = ids.stream().distinct().collect(Collectors.toList());
+    LOG.info("Will get composite product info for {} product ids", productIds.size());
+
+    // One call per core service for the whole id set, the results are then grouped per product
+    return Mono.zip(
+        integration.getProducts(productIds).collectList(),
+        integration.getRecommendations(productIds).collect(Collectors.groupingBy(Recommendation::getProductId)),
+        integration.getReviews(productIds).collect(Collectors.groupingBy(Review::getProductId)))
+        .flatMapMany(values -> {
+          String serviceAddress = serviceUtil.getServiceAddress();
+          Map<Integer, List<Recommendation>> recommendations = values.getT2();
+          Map<Integer, List<Review>> reviews = values.getT3();
+          return Flux.fromIterable(values.getT1())
+              .map(p -> createProductAggregate(p,
+                  recommendations.getOrDefault(p.getProductId(), Collections.emptyList()),
+                  reviews.getOrDefault(p.getProductId(), Collections.emptyList()),
+                  serviceAddress));
+        })
+        .doOnError(ex -> LOG.warn("getCompositeProducts failed: {}", ex.toString()))
+        .transform(instrumentation.flux(SERVICE, "getProducts"))
+        .contextWrite(ctx -> RequestDeadline.withBudget(ctx, getProductsBudget));
   }
 
   @Override
@@ -91,13 +252,17 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 
       LOG.info("Will delete a product aggregate for product.id: {}", productId);
 
+      invalidate(productId);
+
       return Mono.zip(
           r -> "",
           integration.deleteProduct(productId),
           integration.deleteRecommendations(productId),
           integration.deleteReviews(productId))
           .doOnError(ex -> LOG.warn("delete failed: {}", ex.toString()))
-          .log(LOG.getName(), FINE).then();
+          .doFinally(s -> invalidate(productId))
+          .contextWrite(ctx -> RequestDeadline.withBudget(ctx, deleteProductBudget))
+          .transform(instrumentation.mono(SERVICE, "deleteProduct")).then();
 
     } catch (RuntimeException re) {
       LOG.warn("deleteCompositeProduct failed: {}", re.toString());
@@ -105,7 +270,8 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
     }
   }
 
-  private ProductAggregate createProductAggregate(Product product, List<Recommendation> recommendations,
+  // Package-private and static, so it can be benchmarked without the service, see tools/benchmarks
+  static ProductAggregate createProductAggregate(Product product, List<Recommendation> recommendations,
       List<Review> reviews, String serviceAddress) {
 
     // 1. Setup product info
@@ -116,13 +282,14 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
     // 2. Copy summary recommendation info, if available
     List<RecommendationSummary> recommendationSummaries = (recommendations == null) ? null
         : recommendations.stream()
-            .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()))
+            .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(),
+                r.isStale()))
             .collect(Collectors.toList());
 
     // 3. Copy summary review info, if available
     List<ReviewSummary> reviewSummaries = (reviews == null) ? null
         : reviews.stream()
-            .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))
+            .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), r.isStale()))
             .collect(Collectors.toList());
 
     // 4. Create info regarding the involved microservices addresses
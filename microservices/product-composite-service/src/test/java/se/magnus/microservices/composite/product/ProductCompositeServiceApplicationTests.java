@@ -1,20 +1,28 @@
 package se.magnus.microservices.composite.product;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import se.magnus.api.composite.product.ProductAggregateStreamElement;
 import se.magnus.api.core.product.Product;
 import se.magnus.api.core.recommendation.Recommendation;
 import se.magnus.api.core.review.Review;
@@ -49,6 +57,26 @@ class ProductCompositeServiceApplicationTests {
 				.thenReturn(Flux.fromIterable(
 						singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address"))));
 
+		when(compositeIntegration.getProducts(anyList()))
+				.thenReturn(Flux.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+
+		when(compositeIntegration.getRecommendations(anyList()))
+				.thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address"),
+						new Recommendation(PRODUCT_ID_OK, 2, "author", 1, "content", "mock address")));
+
+		when(compositeIntegration.getReviews(anyList()))
+				.thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+
+		when(compositeIntegration.getProductJson(PRODUCT_ID_OK))
+				.thenReturn(jsonBuffer("{\"productId\":1,\"name\":\"name\",\"weight\":1,\"serviceAddress\":\"pro\"}"));
+
+		when(compositeIntegration.getRecommendationsJson(PRODUCT_ID_OK))
+				.thenReturn(jsonBuffer("[{\"productId\":1,\"recommendationId\":1,\"author\":\"author\",\"rate\":1,"
+						+ "\"content\":\"content\",\"serviceAddress\":\"rec\"}]"));
+
+		when(compositeIntegration.getReviewsJson(PRODUCT_ID_OK))
+				.thenReturn(jsonBuffer("[]"));
+
 		when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
 				.thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
 
@@ -69,6 +97,37 @@ class ProductCompositeServiceApplicationTests {
 				.jsonPath("$.reviews.length()").isEqualTo(1);
 	}
 
+	@Test
+	void getProductWithMatchingETagIsNotModified() {
+
+		String etag = client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.returnResult(String.class)
+				.getResponseHeaders().getETag();
+		assertNotNull(etag);
+
+		client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK)
+				.accept(APPLICATION_JSON)
+				.ifNoneMatch(etag)
+				.exchange()
+				.expectStatus().isEqualTo(NOT_MODIFIED)
+				.expectHeader().valueEquals("ETag", etag)
+				.expectBody().isEmpty();
+
+		client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK)
+				.accept(APPLICATION_JSON)
+				.ifNoneMatch("W/\"0\"")
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectBody()
+				.jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK);
+	}
+
 	@Test
 	void getProductNotFound() {
 
@@ -85,6 +144,73 @@ class ProductCompositeServiceApplicationTests {
 				.jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
 	}
 
+	@Test
+	void operationsAreTimed() {
+
+		client.get()
+				.uri("/product-composite?ids=" + PRODUCT_ID_OK)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK);
+
+		client.get()
+				.uri("/actuator/metrics/app.operations?tag=service:product-composite&tag=operation:getProducts")
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectBody()
+				.jsonPath("$.availableTags[?(@.tag == 'outcome')].values[0]").isEqualTo("success");
+	}
+
+	@Test
+	void getProductSpliced() {
+
+		client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK + "/spliced")
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectHeader().contentType(APPLICATION_JSON)
+				.expectBody()
+				.jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
+				.jsonPath("$.recommendations.length()").isEqualTo(1)
+				.jsonPath("$.recommendations[0].serviceAddress").doesNotExist()
+				.jsonPath("$.reviews.length()").isEqualTo(0)
+				.jsonPath("$.serviceAddresses.rec").isEqualTo("rec");
+	}
+
+	@Test
+	void getProductStream() {
+
+		client.get()
+				.uri("/product-composite/" + PRODUCT_ID_OK)
+				.accept(APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectHeader().contentType(APPLICATION_NDJSON)
+				.expectBodyList(ProductAggregateStreamElement.class)
+				.value(elements -> {
+					assertEquals(3, elements.size());
+					assertEquals(ProductAggregateStreamElement.Type.PRODUCT, elements.get(0).getType());
+					assertEquals(PRODUCT_ID_OK, elements.get(0).getProduct().getProductId());
+				});
+	}
+
+	@Test
+	void getProductsByIds() {
+
+		client.get()
+				.uri("/product-composite?ids=" + PRODUCT_ID_OK + "," + PRODUCT_ID_NOT_FOUND)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectHeader().contentType(APPLICATION_JSON)
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(1)
+				.jsonPath("$[0].productId").isEqualTo(PRODUCT_ID_OK)
+				.jsonPath("$[0].recommendations.length()").isEqualTo(2)
+				.jsonPath("$[0].reviews.length()").isEqualTo(1);
+	}
+
 	private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
 		return client.get()
 				.uri("/product-composite/" + productId)
@@ -94,4 +220,8 @@ class ProductCompositeServiceApplicationTests {
 				.expectHeader().contentType(APPLICATION_JSON)
 				.expectBody();
 	}
-}
\ No newline at end of file
+
+	private Mono<DataBuffer> jsonBuffer(String json) {
+		return Mono.fromSupplier(() -> DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,132 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import se.magnus.api.exceptions.ServiceUnavailableException;
+import se.magnus.microservices.composite.product.services.AdaptiveConcurrencyLimiter.Permit;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxQueue, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter("test-service", true, initialLimit, 1, 10, 0.5, 2.0, maxQueue, maxWait,
+                registry);
+    }
+
+    @Test
+    void callsAboveTheLimitAreRejectedWhenTheQueueIsFull() {
+
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 0, Duration.ofMillis(50));
+
+        Permit permit = limiter.acquire().block();
+        StepVerifier.create(limiter.acquire()).expectError(ServiceUnavailableException.class).verify();
+
+        permit.release(false);
+        StepVerifier.create(limiter.acquire()).expectNextCount(1).verifyComplete();
+        assertEquals(1.0, registry.get("composite.limiter.rejected").tag("service", "test-service").counter().count());
+    }
+
+    @Test
+    void queuedCallGetsThePermitOnRelease() {
+
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+
+        Permit permit = limiter.acquire().block();
+        StepVerifier.create(limiter.acquire())
+                .then(() -> permit.release(false))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void queuedCallTimesOut() {
+
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofMillis(10));
+
+        limiter.acquire().block();
+        StepVerifier.create(limiter.acquire()).expectError(ServiceUnavailableException.class).verify();
+
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void failuresShrinkTheLimit() {
+
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 0, Duration.ofMillis(10));
+
+        limiter.acquire().block().release(true);
+        assertEquals(4.0, limiter.getLimit());
+        limiter.acquire().block().release(true);
+        assertEquals(2.0, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void limitConvergesToTheCapacityUnderSustainedLoad() {
+
+        // A service that handles 16 concurrent calls in 10 ms, and fails any calls above that
+        int capacity = 16;
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-service", true, 1, 1, 200, 0.9,
+                2.0, 0, Duration.ofMillis(10), registry, clock::get);
+
+        double minLimit = Double.MAX_VALUE;
+        double maxLimit = 0;
+        for (int round = 0; round < 2000; round++) {
+            // Always more calls than the limit lets through
+            List<Permit> permits = new ArrayList<>();
+            Permit permit;
+            while ((permit = limiter.acquire().onErrorResume(e -> Mono.empty()).block()) != null) {
+                permits.add(permit);
+            }
+
+            clock.addAndGet(Duration.ofMillis(10).toNanos());
+            for (int i = 0; i < permits.size(); i++) {
+                permits.get(i).release(i >= capacity);
+            }
+
+            if (round >= 1000) {
+                minLimit = Math.min(minLimit, limiter.getLimit());
+                maxLimit = Math.max(maxLimit, limiter.getLimit());
+            }
+        }
+
+        assertTrue(minLimit >= capacity * 0.8, "min limit " + minLimit);
+        assertTrue(maxLimit <= capacity + 2, "max limit " + maxLimit);
+    }
+
+    @Test
+    void ignoredPermitsDoNotChangeTheLimit() {
+
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, Duration.ofMillis(10));
+
+        Permit permit = limiter.acquire().block();
+        permit.ignore();
+        permit.release(true);
+
+        assertEquals(4.0, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void disabledLimiterNeverRejects() {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-service", false, 1, 1, 1, 0.5, 2.0,
+                0, Duration.ofMillis(10), registry);
+
+        StepVerifier.create(Mono.zip(limiter.acquire(), limiter.acquire())).expectNextCount(1).verifyComplete();
+    }
+}
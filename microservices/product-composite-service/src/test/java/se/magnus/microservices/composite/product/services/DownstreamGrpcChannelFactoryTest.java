@@ -0,0 +1,100 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.grpc.Channel;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.exceptions.ServiceUnavailableException;
+import se.magnus.api.grpc.ProductIdRequest;
+import se.magnus.api.grpc.ProtoMapper;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc;
+import se.magnus.api.grpc.ReviewMessage;
+import se.magnus.microservices.composite.product.services.DownstreamGrpcChannelFactory.LoadBalancedChannel;
+import se.magnus.microservices.composite.product.services.DownstreamLoadBalancer.Instance;
+import se.magnus.util.grpc.ReactiveGrpc;
+
+class DownstreamGrpcChannelFactoryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    @Test
+    void callsAreSpreadOverTheInstancesAndFailingInstancesAreEjected() throws IOException {
+
+        DownstreamLoadBalancer loadBalancer = new DownstreamLoadBalancer("review-service-grpc",
+                List.of("a:1", "b:2", "c:3"), 3, Duration.ofSeconds(10), Duration.ofMinutes(1), 50, registry);
+        List<TestReviewService> services = List.of(new TestReviewService(false), new TestReviewService(false),
+                new TestReviewService(true));
+        Map<Instance, Channel> instanceChannels = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            instanceChannels.put(loadBalancer.getInstances().get(i), start(services.get(i)));
+        }
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("review-service", false, 10, 1, 10, 0.5,
+                2.0, 0, Duration.ofMillis(10), registry);
+        GrpcReviewClient client = new GrpcReviewClient(
+                new DownstreamGrpcChannel(new LoadBalancedChannel(loadBalancer, instanceChannels), limiter));
+
+        for (int i = 0; i < 30; i++) {
+            try {
+                client.getReviews(1).blockLast(Duration.ofSeconds(5));
+            } catch (ServiceUnavailableException e) {
+                // The failing instance, until it is ejected
+            }
+        }
+
+        assertTrue(loadBalancer.getInstances().get(2).isEjected());
+        assertEquals(3, services.get(2).calls.get());
+        assertTrue(services.get(0).calls.get() > 0);
+        assertTrue(services.get(1).calls.get() > 0);
+        loadBalancer.getInstances().forEach(instance -> assertEquals(0, instance.getOutstanding()));
+    }
+
+    private Channel start(TestReviewService service) throws IOException {
+        String name = InProcessServerBuilder.generateName();
+        servers.add(InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start());
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        channels.add(channel);
+        return channel;
+    }
+
+    private static class TestReviewService extends ReviewGrpcServiceGrpc.ReviewGrpcServiceImplBase {
+
+        private final boolean failing;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        TestReviewService(boolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public void getReviews(ProductIdRequest request, StreamObserver<ReviewMessage> responseObserver) {
+            calls.incrementAndGet();
+            Flux<Review> reviews = failing ? Flux.error(new ServiceUnavailableException("Overloaded"))
+                    : Flux.just(new Review(request.getProductId(), 1, "Author", "Subject", null, null));
+            ReactiveGrpc.respond(reviews.map(ProtoMapper::toMessage), responseObserver);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import se.magnus.api.core.product.Product;
+import se.magnus.microservices.composite.product.services.DownstreamLoadBalancer.Call;
+import se.magnus.microservices.composite.product.services.DownstreamLoadBalancer.Instance;
+
+class DownstreamLoadBalancerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final List<DisposableServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    private DownstreamLoadBalancer loadBalancer(String... addresses) {
+        return new DownstreamLoadBalancer("test-service", List.of(addresses), 3, Duration.ofSeconds(10),
+                Duration.ofMinutes(1), 50, registry, clock::get);
+    }
+
+    @Test
+    void callGoesToTheInstanceWithFewerOutstandingCalls() {
+
+        DownstreamLoadBalancer loadBalancer = loadBalancer("a:1", "b:2");
+
+        Call first = loadBalancer.choose();
+        Call second = loadBalancer.choose();
+        assertNotSame(first.getInstance(), second.getInstance());
+
+        second.complete(false);
+        assertSame(second.getInstance(), loadBalancer.choose().getInstance());
+    }
+
+    @Test
+    void instanceIsEjectedAfterConsecutiveFailuresUntilTheEjectionTimeHasPassed() {
+
+        DownstreamLoadBalancer loadBalancer = loadBalancer("a:1", "b:2", "c:3");
+        Instance failing = loadBalancer.getInstances().get(0);
+
+        for (int i = 0; i < 3; i++) {
+            failOn(loadBalancer, failing);
+        }
+        assertTrue(failing.isEjected());
+        for (int i = 0; i < 100; i++) {
+            Call call = loadBalancer.choose();
+            assertNotSame(failing, call.getInstance());
+            call.complete(false);
+        }
+        assertEquals(1.0, registry.get("composite.loadbalancer.ejections").tag("instance", "a:1").counter().count());
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertFalse(failing.isEjected());
+    }
+
+    @Test
+    void lastHealthyInstanceIsNeverEjected() {
+
+        DownstreamLoadBalancer loadBalancer = loadBalancer("a:1");
+
+        for (int i = 0; i < 10; i++) {
+            loadBalancer.choose().complete(true);
+        }
+
+        assertFalse(loadBalancer.getInstances().get(0).isEjected());
+    }
+
+    @Test
+    void callsAreSpreadOverSeveralProductServiceInstancesAndAFailingOneIsEjected() {
+
+        AtomicInteger failingHits = new AtomicInteger();
+        List<AtomicInteger> healthyHits = List.of(new AtomicInteger(), new AtomicInteger());
+        int failingPort = startInstance(failingHits, true);
+        int port1 = startInstance(healthyHits.get(0), false);
+        int port2 = startInstance(healthyHits.get(1), false);
+
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.product-service.instances",
+                        "localhost:" + failingPort + ",localhost:" + port1 + ",localhost:" + port2)
+                .withProperty("app.product-service.load-balancer.consecutive-failures", "2")
+                .withProperty("app.product-service.limiter.enabled", "false");
+        DownstreamWebClientFactory factory = new DownstreamWebClientFactory(WebClient.builder(), env, registry);
+        WebClient client = factory.create("product-service");
+
+        try {
+            for (int i = 0; i < 30; i++) {
+                client.get().uri("http://product-service/product/1").retrieve().bodyToMono(Product.class)
+                        .onErrorResume(ex -> Mono.empty())
+                        .block(Duration.ofSeconds(5));
+            }
+        } finally {
+            factory.destroy();
+        }
+
+        assertTrue(failingHits.get() <= 2, "failing instance got " + failingHits.get() + " calls");
+        assertEquals(30, failingHits.get() + healthyHits.get(0).get() + healthyHits.get(1).get());
+        assertTrue(healthyHits.get(0).get() > 0);
+        assertTrue(healthyHits.get(1).get() > 0);
+    }
+
+    private void failOn(DownstreamLoadBalancer loadBalancer, Instance instance) {
+        // Only the failing instance gets failed calls, the others are completed normally
+        while (true) {
+            Call call = loadBalancer.choose();
+            if (call.getInstance() == instance) {
+                call.complete(true);
+                return;
+            }
+            call.complete(false);
+        }
+    }
+
+    private int startInstance(AtomicInteger hits, boolean failing) {
+        DisposableServer server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/product/{productId}", (request, response) -> {
+                    hits.incrementAndGet();
+                    if (failing) {
+                        return response.status(500).send();
+                    }
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.just("{\"productId\":1,\"name\":\"n\",\"weight\":1}"));
+                }))
+                .bindNow();
+        servers.add(server);
+        return server.port();
+    }
+}
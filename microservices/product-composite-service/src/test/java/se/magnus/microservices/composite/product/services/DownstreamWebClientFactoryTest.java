@@ -0,0 +1,145 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import se.magnus.api.core.review.Review;
+import se.magnus.util.http.BinaryCodecCustomizer;
+
+class DownstreamWebClientFactoryTest {
+
+    private final List<Review> reviews = new ArrayList<>();
+    private final AtomicReference<String> accept = new AtomicReference<>();
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private DisposableServer server;
+    private DownstreamWebClientFactory factory;
+
+    @AfterEach
+    void tearDown() {
+        if (factory != null) {
+            factory.destroy();
+            factory = null;
+        }
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    @Test
+    void responsesAreRequestedAndDecodedInTheConfiguredEncoding() {
+
+        addReviews(10);
+
+        for (String encoding : List.of("smile", "cbor")) {
+            MediaType mediaType = encoding.equals("smile") ? BinaryCodecCustomizer.APPLICATION_SMILE : APPLICATION_CBOR;
+            startServer(mediaType);
+
+            List<Review> result = getReviews(client(encoding, false));
+
+            assertEquals(mediaType.toString(), accept.get());
+            assertEquals(10, result.size());
+            assertEquals("content 9", result.get(9).getContent());
+            tearDown();
+        }
+    }
+
+    @Test
+    void responsesAreRequestedCompressedIfEnabled() {
+
+        addReviews(1000);
+        startServer(APPLICATION_JSON);
+
+        List<Review> result = getReviews(client("json", true));
+
+        assertEquals("application/json", accept.get());
+        assertTrue(acceptEncoding.get().contains("gzip"), "Accept-Encoding: " + acceptEncoding.get());
+        assertEquals(1000, result.size());
+    }
+
+    @Test
+    void unknownEncodingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> client("xml", false));
+    }
+
+    private void addReviews(int count) {
+        for (int i = 0; i < count; i++) {
+            reviews.add(new Review(1, i, "author " + i, "subject " + i, "content " + i, null));
+        }
+    }
+
+    private void startServer(MediaType mediaType) {
+        byte[] body = encode(mediaType);
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .compress(1024)
+                .route(routes -> routes.get("/review", (request, response) -> {
+                    accept.set(request.requestHeaders().get("Accept"));
+                    acceptEncoding.set(request.requestHeaders().get("Accept-Encoding", ""));
+                    return response.header("Content-Type", mediaType.toString()).sendByteArray(Mono.just(body));
+                }))
+                .bindNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] encode(MediaType mediaType) {
+        // Encoded like the core services do it
+        ServerCodecConfigurer codecs = ServerCodecConfigurer.create();
+        new BinaryCodecCustomizer().customize(codecs);
+        ResolvableType type = ResolvableType.forClass(Review.class);
+        HttpMessageWriter<Review> writer = (HttpMessageWriter<Review>) codecs.getWriters().stream()
+                .filter(w -> w.canWrite(type, mediaType))
+                .findFirst()
+                .orElseThrow();
+
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        writer.write(Flux.fromIterable(reviews), type, mediaType, response, Map.of()).block();
+        return DataBufferUtils.join(response.getBody())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .block();
+    }
+
+    private WebClient client(String encoding, boolean compression) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.review-service.host", "localhost")
+                .withProperty("app.review-service.port", String.valueOf(server != null ? server.port() : 0))
+                .withProperty("app.review-service.encoding", encoding)
+                .withProperty("app.review-service.compression", String.valueOf(compression));
+        WebClient.Builder builder = WebClient.builder().codecs(new BinaryCodecCustomizer()::customize);
+        factory = new DownstreamWebClientFactory(builder, env, new SimpleMeterRegistry());
+        return factory.create("review-service");
+    }
+
+    private List<Review> getReviews(WebClient client) {
+        return client.get().uri("http://review-service/review?productId=1").retrieve().bodyToFlux(Review.class)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+    }
+}
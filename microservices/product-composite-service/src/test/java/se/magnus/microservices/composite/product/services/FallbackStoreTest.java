@@ -0,0 +1,98 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import se.magnus.api.core.recommendation.Recommendation;
+
+class FallbackStoreTest {
+
+    private final FallbackStore<Recommendation> store = new FallbackStore<>("test-service", 100,
+            Duration.ofMinutes(1), 2, r -> {
+                Recommendation copy = new Recommendation(r.getProductId(), r.getRecommendationId(), r.getAuthor(),
+                        r.getRate(), r.getContent(), r.getServiceAddress());
+                copy.setStale(true);
+                return copy;
+            }, new SimpleMeterRegistry());
+
+    @Test
+    void fallbackReturnsLastKnownResultMarkedAsStale() {
+
+        Recommendation recommendation = new Recommendation(1, 1, "a", 1, "c", "sa");
+        store.put(1, List.of(recommendation));
+
+        StepVerifier.create(store.fallback(1, new IllegalStateException("boom")))
+                .expectNextMatches(list -> list.size() == 1 && list.get(0).isStale()
+                        && list.get(0).getRecommendationId() == 1)
+                .verifyComplete();
+
+        assertFalse(recommendation.isStale());
+    }
+
+    @Test
+    void fallbackWithoutStoredResultIsEmpty() {
+
+        StepVerifier.create(store.fallback(2, new IllegalStateException("boom")))
+                .expectNextMatches(List::isEmpty)
+                .verifyComplete();
+    }
+
+    @Test
+    void evictedResultIsNotReturned() {
+
+        store.put(1, List.of(new Recommendation(1, 1, "a", 1, "c", "sa")));
+        store.evict(1);
+
+        StepVerifier.create(store.fallback(1, new IllegalStateException("boom")))
+                .expectNextMatches(List::isEmpty)
+                .verifyComplete();
+    }
+
+    @Test
+    void streamedResultIsStoredUpToMaxElements() {
+
+        StepVerifier.create(store.stream(1, Flux.just(recommendation(1), recommendation(2))))
+                .expectNextCount(2)
+                .verifyComplete();
+        StepVerifier.create(store.fallback(1, new IllegalStateException("boom")))
+                .expectNextMatches(list -> list.size() == 2)
+                .verifyComplete();
+
+        // Three elements are more than the store keeps, so the old result is evicted too
+        StepVerifier.create(store.stream(1, Flux.just(recommendation(1), recommendation(2), recommendation(3))))
+                .expectNextCount(3)
+                .verifyComplete();
+        StepVerifier.create(store.fallback(1, new IllegalStateException("boom")))
+                .expectNextMatches(List::isEmpty)
+                .verifyComplete();
+    }
+
+    @Test
+    void streamFallsBackOnlyBeforeTheFirstElement() {
+
+        store.put(1, List.of(recommendation(1), recommendation(2)));
+
+        StepVerifier.create(store.stream(1, Flux.error(new IllegalStateException("boom"))))
+                .expectNextMatches(Recommendation::isStale)
+                .expectNextMatches(Recommendation::isStale)
+                .verifyComplete();
+
+        AtomicBoolean degraded = new AtomicBoolean();
+        StepVerifier.create(store.stream(1, Flux.concat(Flux.just(recommendation(3)),
+                        Flux.error(new IllegalStateException("boom"))))
+                        .contextWrite(ctx -> FallbackStore.trackDegraded(ctx, degraded)))
+                .expectNextMatches(r -> r.getRecommendationId() == 3 && !r.isStale())
+                .verifyComplete();
+        assertTrue(degraded.get());
+    }
+
+    private static Recommendation recommendation(int recommendationId) {
+        return new Recommendation(1, recommendationId, "a", 1, "c", "sa");
+    }
+}
@@ -0,0 +1,138 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.exceptions.InvalidInputException;
+import se.magnus.api.exceptions.NotFoundException;
+import se.magnus.api.grpc.ProductIdRequest;
+import se.magnus.api.grpc.ProtoMapper;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc;
+import se.magnus.api.grpc.ReviewMessage;
+import se.magnus.util.grpc.ReactiveGrpc;
+import se.magnus.util.http.RequestDeadline;
+
+class GrpcReviewClientTest {
+
+    private final AtomicReference<Duration> serverDeadline = new AtomicReference<>();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("review-service", true, 4, 1, 10,
+            0.5, 1000.0, 0, Duration.ofMillis(10), new SimpleMeterRegistry());
+    private Server server;
+    private ManagedChannel channel;
+    private GrpcReviewClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(new TestReviewService()).build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        client = new GrpcReviewClient(new DownstreamGrpcChannel(channel, limiter));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void reviewsAreStreamedFromTheServer() {
+
+        List<Review> reviews = client.getReviews(1).collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(3, reviews.size());
+        assertEquals(3, reviews.get(2).getReviewId());
+        assertEquals("Author 1", reviews.get(0).getAuthor());
+        assertNull(reviews.get(0).getContent());
+    }
+
+    @Test
+    void errorsAreMappedToTheExceptionsOfTheApi() {
+
+        assertThrows(NotFoundException.class, () -> client.getReviews(13).collectList().block(Duration.ofSeconds(5)));
+        assertThrows(InvalidInputException.class, () -> client.deleteReviews(-1).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void theDeadlineOfTheRequestIsSentToTheServer() {
+
+        client.getReviews(1)
+                .contextWrite(ctx -> RequestDeadline.withBudget(ctx, Duration.ofSeconds(2)))
+                .blockLast(Duration.ofSeconds(5));
+
+        Duration remaining = serverDeadline.get();
+        assertNotNull(remaining);
+        assertTrue(remaining.compareTo(Duration.ZERO) > 0 && remaining.compareTo(Duration.ofSeconds(2)) <= 0,
+                "Unexpected deadline: " + remaining);
+    }
+
+    @Test
+    void cancellingTheSubscriptionCancelsTheCallOnTheServer() throws InterruptedException {
+
+        Review first = client.getReviews(2).blockFirst(Duration.ofSeconds(5));
+
+        assertEquals(1, first.getReviewId());
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void callsGoThroughTheConcurrencyLimiter() {
+
+        client.getReviews(1).blockLast(Duration.ofSeconds(5));
+        assertThrows(NotFoundException.class, () -> client.getReviews(13).blockLast(Duration.ofSeconds(5)));
+        client.getReviews(2).blockFirst(Duration.ofSeconds(5));
+
+        // Not found isn't a sign of overload, and the cancelled stream gave its permit back
+        assertEquals(4.0, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private class TestReviewService extends ReviewGrpcServiceGrpc.ReviewGrpcServiceImplBase {
+
+        @Override
+        public void getReviews(ProductIdRequest request, StreamObserver<ReviewMessage> responseObserver) {
+            int productId = request.getProductId();
+            Flux<Review> reviews;
+            if (productId == 13) {
+                reviews = Flux.error(new NotFoundException("No product found for productId: 13"));
+            } else if (productId == 2) {
+                // Never completes, only ends when the client cancels the call
+                reviews = Flux.interval(Duration.ofMillis(10))
+                        .map(i -> new Review(productId, i.intValue() + 1, "Author", "Subject", null, null))
+                        .doOnCancel(cancelled::countDown);
+            } else {
+                reviews = Flux.deferContextual(ctx -> {
+                    RequestDeadline.remaining(ctx).ifPresent(serverDeadline::set);
+                    return Flux.range(1, 3).map(i -> new Review(productId, i, "Author " + i, "Subject", null, null));
+                });
+            }
+            ReactiveGrpc.respond(reviews.map(ProtoMapper::toMessage), responseObserver);
+        }
+
+        @Override
+        public void deleteReviews(ProductIdRequest request, StreamObserver<Empty> responseObserver) {
+            ReactiveGrpc.respond(Mono.error(new InvalidInputException("Invalid productId: " + request.getProductId())),
+                    responseObserver);
+        }
+    }
+}
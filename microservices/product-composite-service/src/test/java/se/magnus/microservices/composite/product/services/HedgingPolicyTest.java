@@ -0,0 +1,87 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class HedgingPolicyTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void slowPrimaryIsHedged() {
+
+        // A ratio of 1.0 gives one token per request, i.e. every request may be hedged
+        HedgingPolicy policy = new HedgingPolicy("test", true, 0.95, Duration.ofMillis(50), 1.0, registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> policy.hedge(() -> calls.incrementAndGet() == 1
+                ? Flux.just("slow").delayElements(Duration.ofSeconds(1))
+                : Flux.just("fast")))
+                .thenAwait(Duration.ofMillis(50))
+                .expectNext("fast")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("composite.hedging.requests").tag("result", "hedged").counter().count());
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+
+        HedgingPolicy policy = new HedgingPolicy("test", true, 0.95, Duration.ofMillis(50), 1.0, registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> policy.hedge(() -> {
+            calls.incrementAndGet();
+            return Flux.just("a", "b").delayElements(Duration.ofMillis(10));
+        }))
+                .thenAwait(Duration.ofMillis(20))
+                .expectNext("a", "b")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void hedgesAreCappedByHedgeRatio() {
+
+        // A ratio of 0.1 needs ten requests before the first hedge is allowed
+        HedgingPolicy policy = new HedgingPolicy("test", true, 0.95, Duration.ofMillis(50), 0.1, registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> policy.hedge(() -> {
+            calls.incrementAndGet();
+            return Flux.just("slow").delayElements(Duration.ofSeconds(1));
+        }))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext("slow")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("composite.hedging.requests").tag("result", "suppressed").counter().count());
+    }
+
+    @Test
+    void latencyIsRecordedWhenTheHedgeWins() {
+
+        HedgingPolicy policy = new HedgingPolicy("test", true, 0.95, Duration.ofMillis(1), 1.0, registry);
+
+        // The delay is recalculated every 100 requests, each primary is slow and loses to its hedge
+        for (int i = 0; i < 100; i++) {
+            AtomicInteger calls = new AtomicInteger();
+            StepVerifier.create(policy.hedge(() -> calls.incrementAndGet() == 1
+                    ? Flux.just("slow").delayElements(Duration.ofSeconds(1))
+                    : Flux.just("fast").delayElements(Duration.ofMillis(30))))
+                    .expectNext("fast")
+                    .verifyComplete();
+        }
+
+        assertTrue(registry.get("composite.hedging.delay").gauge().value() >= 30.0);
+    }
+}
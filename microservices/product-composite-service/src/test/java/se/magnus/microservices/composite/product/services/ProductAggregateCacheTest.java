@@ -0,0 +1,113 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import se.magnus.api.composite.product.ProductAggregate;
+import se.magnus.api.composite.product.RecommendationSummary;
+
+class ProductAggregateCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ProductAggregateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductAggregateCache(registry, true, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        cache.setLoader(productId -> {
+            loads.incrementAndGet();
+            return Mono.just(new ProductAggregate(productId, "n", 1, null, null, null));
+        });
+    }
+
+    @Test
+    void secondReadIsServedFromCache() {
+
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void invalidateForcesReload() {
+
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+        cache.invalidate(1);
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+
+        cache.setLoader(productId -> {
+            loads.incrementAndGet();
+            return Mono.error(new IllegalStateException("boom"));
+        });
+
+        StepVerifier.create(cache.get(1)).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(cache.get(1)).expectError(IllegalStateException.class).verify();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void aggregatesWithStaleDataAreNotCached() {
+
+        cache.setLoader(productId -> {
+            loads.incrementAndGet();
+            return Mono.just(new ProductAggregate(productId, "n", 1,
+                    List.of(new RecommendationSummary(1, "a", 1, "c", true)), List.of(), null));
+        });
+
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void aggregatesLoadedWithAnEmptyFallbackAreNotCached() {
+
+        FallbackStore<RecommendationSummary> fallback = new FallbackStore<>("test-service", 100, Duration.ofMinutes(1),
+                2, r -> r, registry);
+        cache.setLoader(productId -> {
+            loads.incrementAndGet();
+            return fallback.fallback(productId, new IllegalStateException("boom"))
+                    .map(recommendations -> new ProductAggregate(productId, "n", 1, recommendations, List.of(), null));
+        });
+
+        StepVerifier.create(cache.get(1)).expectNextMatches(a -> a.getRecommendations().isEmpty()).verifyComplete();
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+
+        cache = new ProductAggregateCache(registry, false, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        cache.setLoader(productId -> {
+            loads.incrementAndGet();
+            return Mono.just(new ProductAggregate());
+        });
+
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(1)).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,79 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import se.magnus.api.composite.product.ProductAggregate;
+import se.magnus.api.composite.product.RecommendationSummary;
+import se.magnus.api.composite.product.ReviewSummary;
+import se.magnus.api.core.product.Product;
+
+class ProductAggregateJsonAssemblerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ProductAggregateJsonAssembler assembler = new ProductAggregateJsonAssembler(mapper);
+
+    @Test
+    void assemblesTheSameDocumentAsProductAggregate() throws Exception {
+
+        DataBuffer result = assembler.assemble(
+                buffer("{\"productId\":1,\"name\":\"n\",\"weight\":2,\"serviceAddress\":\"pro\"}"),
+                buffer("[{\"productId\":1,\"recommendationId\":1,\"author\":\"a\",\"rate\":3,\"content\":\"c\","
+                        + "\"serviceAddress\":\"rec\"},"
+                        + "{\"productId\":1,\"recommendationId\":2,\"author\":\"a\",\"rate\":4,\"content\":\"c\","
+                        + "\"serviceAddress\":\"rec-2\"}]"),
+                buffer("[{\"productId\":1,\"reviewId\":1,\"author\":\"a\",\"subject\":\"s\",\"content\":\"c\","
+                        + "\"serviceAddress\":\"rev\",\"stale\":true,\"extra\":{\"nested\":[1,2]}}]"),
+                "cmp", DefaultDataBufferFactory.sharedInstance);
+
+        String json = result.toString(StandardCharsets.UTF_8);
+        ProductAggregate aggregate = mapper.readValue(json, ProductAggregate.class);
+
+        assertEquals(1, aggregate.getProductId());
+        assertEquals("n", aggregate.getName());
+        assertEquals(2, aggregate.getWeight());
+        assertEquals(2, aggregate.getRecommendations().size());
+        RecommendationSummary recommendation = aggregate.getRecommendations().get(1);
+        assertEquals(2, recommendation.getRecommendationId());
+        assertEquals(4, recommendation.getRate());
+        ReviewSummary review = aggregate.getReviews().get(0);
+        assertEquals("s", review.getSubject());
+        assertTrue(review.isStale());
+        assertFalse(recommendation.isStale());
+        assertEquals("cmp", aggregate.getServiceAddresses().getCmp());
+        assertEquals("pro", aggregate.getServiceAddresses().getPro());
+        assertEquals("rec", aggregate.getServiceAddresses().getRec());
+        assertEquals("rev", aggregate.getServiceAddresses().getRev());
+        assertFalse(json.contains("serviceAddress\""));
+        assertFalse(json.contains("extra"));
+    }
+
+    @Test
+    void emptyListsGiveTheSameDocumentAsProductAggregate() throws Exception {
+
+        DataBuffer result = assembler.assemble(
+                buffer("{\"productId\":1,\"name\":\"n\",\"weight\":2,\"serviceAddress\":\"pro\"}"),
+                buffer("[]"), buffer("[]"), "cmp", DefaultDataBufferFactory.sharedInstance);
+
+        ProductAggregate typed = ProductCompositeServiceImpl.createProductAggregate(
+                new Product(1, "n", 2, "pro"), List.of(), List.of(), "cmp");
+
+        assertEquals(mapper.valueToTree(typed), mapper.readTree(result.toString(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void unexpectedJsonIsRejected() {
+
+        assertThrows(RuntimeException.class, () -> assembler.assemble(buffer("[]"), buffer("[]"), buffer("[]"),
+                "cmp", DefaultDataBufferFactory.sharedInstance));
+    }
+
+    private DataBuffer buffer(String json) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
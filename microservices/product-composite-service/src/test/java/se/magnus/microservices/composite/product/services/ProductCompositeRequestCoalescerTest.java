@@ -0,0 +1,100 @@
+package se.magnus.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import se.magnus.api.composite.product.ProductAggregate;
+
+class ProductCompositeRequestCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProductCompositeRequestCoalescer coalescer = new ProductCompositeRequestCoalescer(registry);
+
+    @Test
+    void concurrentCallsShareOneLoad() {
+
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<ProductAggregate> sink = Sinks.one();
+
+        Mono<ProductAggregate> first = coalescer.coalesce(1, () -> {
+            loads.incrementAndGet();
+            return sink.asMono();
+        });
+        Mono<ProductAggregate> second = coalescer.coalesce(1, () -> {
+            loads.incrementAndGet();
+            return sink.asMono();
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> sink.tryEmitValue(new ProductAggregate(1, "n", 1, null, null, null)))
+                .expectNextMatches(t -> t.getT1() == t.getT2())
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("composite.coalescing.requests").tag("result", "leader").counter().count());
+        assertEquals(1.0, registry.get("composite.coalescing.requests").tag("result", "joined").counter().count());
+        assertEquals(0.0, registry.get("composite.coalescing.in-flight").gauge().value());
+    }
+
+    @Test
+    void sequentialCallsLoadAgain() {
+
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(coalescer.coalesce(1, () -> {
+                loads.incrementAndGet();
+                return Mono.just(new ProductAggregate(1, "n", 1, null, null, null));
+            }))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        }
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidatedCallIsNotJoined() {
+
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<ProductAggregate> before = Sinks.one();
+
+        Mono<ProductAggregate> first = coalescer.coalesce(1, () -> {
+            loads.incrementAndGet();
+            return before.asMono();
+        });
+        StepVerifier.create(first)
+                .then(() -> {
+                    coalescer.invalidate(1);
+                    StepVerifier.create(coalescer.coalesce(1, () -> {
+                        loads.incrementAndGet();
+                        return Mono.just(new ProductAggregate(1, "after", 1, null, null, null));
+                    }))
+                            .expectNextMatches(aggregate -> aggregate.getName().equals("after"))
+                            .verifyComplete();
+                    before.tryEmitValue(new ProductAggregate(1, "before", 1, null, null, null));
+                })
+                .expectNextMatches(aggregate -> aggregate.getName().equals("before"))
+                .verifyComplete();
+
+        assertEquals(2, loads.get());
+        assertEquals(0.0, registry.get("composite.coalescing.in-flight").gauge().value());
+    }
+
+    @Test
+    void errorsArePropagatedAndNotRetained() {
+
+        StepVerifier.create(coalescer.coalesce(1, () -> Mono.error(new IllegalStateException("boom"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        StepVerifier.create(coalescer.coalesce(1, () -> Mono.just(new ProductAggregate())))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,54 @@
+package se.magnus.microservices.core.product.services;
+
+import static se.magnus.api.grpc.ProtoMapper.toApi;
+import static se.magnus.api.grpc.ProtoMapper.toMessage;
+
+import com.google.protobuf.Empty;
+import io.grpc.stub.StreamObserver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.product.ProductService;
+import se.magnus.api.grpc.ProductGrpcServiceGrpc;
+import se.magnus.api.grpc.ProductIdRequest;
+import se.magnus.api.grpc.ProductIdsRequest;
+import se.magnus.api.grpc.ProductMessage;
+import se.magnus.util.grpc.ReactiveGrpc;
+
+/*
+ * The gRPC API of the product service, served by GrpcServer on app.grpc.port. Delegates to the
+ * same ProductService as the REST API.
+ */
+@Component
+public class ProductGrpcServiceImpl extends ProductGrpcServiceGrpc.ProductGrpcServiceImplBase {
+
+  private final ProductService service;
+
+  public ProductGrpcServiceImpl(ProductService service) {
+    this.service = service;
+  }
+
+  @Override
+  public void createProduct(ProductMessage request, StreamObserver<ProductMessage> responseObserver) {
+    ReactiveGrpc.respond(Mono.defer(() -> service.createProduct(toApi(request))).map(p -> toMessage(p)),
+      responseObserver);
+  }
+
+  @Override
+  public void getProduct(ProductIdRequest request, StreamObserver<ProductMessage> responseObserver) {
+    ReactiveGrpc.respond(Mono.defer(() -> service.getProduct(request.getProductId())).map(p -> toMessage(p)),
+      responseObserver);
+  }
+
+  @Override
+  public void getProducts(ProductIdsRequest request, StreamObserver<ProductMessage> responseObserver) {
+    ReactiveGrpc.respond(Flux.defer(() -> service.getProducts(request.getProductIdsList())).map(p -> toMessage(p)),
+      responseObserver);
+  }
+
+  @Override
+  public void deleteProduct(ProductIdRequest request, StreamObserver<Empty> responseObserver) {
+    ReactiveGrpc.respond(Mono.defer(() -> service.deleteProduct(request.getProductId()))
+      .thenReturn(Empty.getDefaultInstance()), responseObserver);
+  }
+}
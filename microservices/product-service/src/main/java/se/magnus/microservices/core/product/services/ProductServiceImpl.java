@@ -1,12 +1,12 @@
 package se.magnus.microservices.core.product.services;
 
-import static java.util.logging.Level.FINE;
-
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import se.magnus.api.core.product.Product;
 import se.magnus.api.core.product.ProductService;
@@ -14,24 +14,33 @@ import se.magnus.api.exceptions.InvalidInputException;
 import se.magnus.api.exceptions.NotFoundException;
 import se.magnus.microservices.core.product.persistence.ProductEntity;
 import se.magnus.microservices.core.product.persistence.ProductRepository;
+import se.magnus.util.http.ConditionalRequests;
+import se.magnus.util.http.RequestDeadline;
 import se.magnus.util.http.ServiceUtil;
+import se.magnus.util.metrics.ReactiveInstrumentation;
 
 @RestController
 public class ProductServiceImpl implements ProductService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ProductServiceImpl.class);
 
+  private static final String REPOSITORY = "product-repository";
+
   private final ServiceUtil serviceUtil;
 
   private final ProductRepository repository;
 
   private final ProductMapper mapper;
 
+  private final ReactiveInstrumentation instrumentation;
+
   @Autowired
-  public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+  public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil,
+      ReactiveInstrumentation instrumentation) {
     this.repository = repository;
     this.mapper = mapper;
     this.serviceUtil = serviceUtil;
+    this.instrumentation = instrumentation;
   }
 
   @Override
@@ -43,7 +52,8 @@ public class ProductServiceImpl implements ProductService {
 
     ProductEntity entity = mapper.apiToEntity(body);
     Mono<Product> newEntity = repository.save(entity)
-        .log(LOG.getName(), FINE)
+        .transform(RequestDeadline::enforce)
+        .transform(instrumentation.mono(REPOSITORY, "save"))
         .onErrorMap(
             DuplicateKeyException.class,
             ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()))
@@ -62,8 +72,28 @@ public class ProductServiceImpl implements ProductService {
     LOG.info("Will get product info for id={}", productId);
 
     return repository.findByProductId(productId)
+        .transform(RequestDeadline::enforce)
+        .transform(instrumentation.mono(REPOSITORY, "findByProductId"))
         .switchIfEmpty(Mono.error(new NotFoundException("No product found for productId: " + productId)))
-        .log(LOG.getName(), FINE)
+        .flatMap(e -> ConditionalRequests.ifNoneMatch(
+            ConditionalRequests.etag().add(e.getId()).add(e.getVersion()).build(),
+            () -> setServiceAddress(mapper.entityToApi(e))));
+  }
+
+  @Override
+  public Flux<Product> getProducts(List<Integer> productIds) {
+
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw new InvalidInputException("Invalid productId: " + productId);
+      }
+    });
+
+    LOG.info("Will get product info for {} ids", productIds.size());
+
+    return repository.findByProductIdIn(productIds)
+        .transform(RequestDeadline::enforce)
+        .transform(instrumentation.flux(REPOSITORY, "findByProductIdIn"))
         .map(e -> mapper.entityToApi(e))
         .map(e -> setServiceAddress(e));
   }
@@ -76,8 +106,10 @@ public class ProductServiceImpl implements ProductService {
     }
 
     LOG.debug("deleteProduct: tries to delete an entity with productId: {}", productId);
-    return repository.findByProductId(productId).log(LOG.getName(), FINE).map(e -> repository.delete(e))
-        .flatMap(e -> e);
+    return repository.findByProductId(productId).map(e -> repository.delete(e))
+        .flatMap(e -> e)
+        .transform(RequestDeadline::enforce)
+        .transform(instrumentation.mono(REPOSITORY, "delete"));
   }
 
   private Product setServiceAddress(Product e) {
@@ -19,7 +19,7 @@ import se.magnus.api.core.product.Product;
 import se.magnus.microservices.core.product.persistence.MongoDbTestBase;
 import se.magnus.microservices.core.product.persistence.ProductRepository;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "app.grpc.port=0")
 class ProductServiceApplicationTests extends MongoDbTestBase {
 
 	@Autowired
@@ -49,6 +49,59 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 		getAndVerifyProduct(productId, OK).jsonPath("$.productId").isEqualTo(productId);
 	}
 
+	@Test
+	void getProductWithMatchingETagIsNotModified() {
+
+		int productId = 1;
+
+		postAndVerifyProduct(productId, OK);
+
+		String etag = client.get()
+				.uri("/product/" + productId)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.returnResult(String.class)
+				.getResponseHeaders().getETag();
+		assertNotNull(etag);
+
+		client.get()
+				.uri("/product/" + productId)
+				.accept(APPLICATION_JSON)
+				.ifNoneMatch(etag)
+				.exchange()
+				.expectStatus().isEqualTo(NOT_MODIFIED)
+				.expectBody().isEmpty();
+
+		// A product created again gets a new id, and thereby a new ETag, even if its version is the same
+		deleteAndVerifyProduct(productId, OK);
+		postAndVerifyProduct(productId, OK);
+
+		client.get()
+				.uri("/product/" + productId)
+				.accept(APPLICATION_JSON)
+				.ifNoneMatch(etag)
+				.exchange()
+				.expectStatus().isEqualTo(OK);
+	}
+
+	@Test
+	void getProductsByIds() {
+
+		postAndVerifyProduct(1, OK);
+		postAndVerifyProduct(2, OK);
+		postAndVerifyProduct(3, OK);
+
+		client.get()
+				.uri("/product?productIds=1,3,4")
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectHeader().contentType(APPLICATION_JSON)
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2);
+	}
+
 	@Test
 	void duplicateError() {
 
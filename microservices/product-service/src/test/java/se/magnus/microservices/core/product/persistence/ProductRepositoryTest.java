@@ -1,5 +1,6 @@
 package se.magnus.microservices.core.product.persistence;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +11,8 @@ import org.springframework.dao.OptimisticLockingFailureException;
 import reactor.test.StepVerifier;
 
 @DataMongoTest
+// The instrumented services are component scanned too, but the metrics aren't auto-configured in a slice test
+@Import(SimpleMeterRegistry.class)
 class ProductRepositoryTest extends MongoDbTestBase {
 
   @Autowired
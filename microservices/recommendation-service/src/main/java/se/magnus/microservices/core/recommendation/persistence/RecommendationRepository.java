@@ -1,8 +1,15 @@
 package se.magnus.microservices.core.recommendation.persistence;
 
+import java.util.Collection;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface RecommendationRepository extends ReactiveCrudRepository<RecommendationEntity, String> {
   Flux<RecommendationEntity> findByProductId(int productId);
+
+  Flux<RecommendationEntity> findByProductIdIn(Collection<Integer> productIds);
+
+  // Returning the count makes it one deleteMany, returning the entities would find and remove them one by one
+  Mono<Long> deleteByProductId(int productId);
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package se.magnus.microservices.core.recommendation.services;
+
+import static se.magnus.api.grpc.ProtoMapper.toApi;
+import static se.magnus.api.grpc.ProtoMapper.toMessage;
+
+import com.google.protobuf.Empty;
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.recommendation.Recommendation;
+import se.magnus.api.core.recommendation.RecommendationService;
+import se.magnus.api.grpc.ProductIdRequest;
+import se.magnus.api.grpc.ProductIdsRequest;
+import se.magnus.api.grpc.RecommendationGrpcServiceGrpc;
+import se.magnus.api.grpc.RecommendationList;
+import se.magnus.api.grpc.RecommendationMessage;
+import se.magnus.util.grpc.ReactiveGrpc;
+
+/*
+ * The gRPC API of the recommendation service, served by GrpcServer on app.grpc.port. Delegates to
+ * the same RecommendationService as the REST API, lists of recommendations are server-streamed.
+ */
+@Component
+public class RecommendationGrpcServiceImpl extends RecommendationGrpcServiceGrpc.RecommendationGrpcServiceImplBase {
+
+    private final RecommendationService service;
+
+    public RecommendationGrpcServiceImpl(RecommendationService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void createRecommendation(RecommendationMessage request,
+            StreamObserver<RecommendationMessage> responseObserver) {
+        ReactiveGrpc.respond(Mono.defer(() -> service.createRecommendation(toApi(request))).map(r -> toMessage(r)),
+                responseObserver);
+    }
+
+    @Override
+    public void createRecommendations(RecommendationList request,
+            StreamObserver<RecommendationMessage> responseObserver) {
+        List<Recommendation> body = request.getRecommendationsList().stream().map(r -> toApi(r)).toList();
+        ReactiveGrpc.respond(Flux.defer(() -> service.createRecommendations(body)).map(r -> toMessage(r)),
+                responseObserver);
+    }
+
+    @Override
+    public void getRecommendations(ProductIdRequest request, StreamObserver<RecommendationMessage> responseObserver) {
+        ReactiveGrpc.respond(Flux.defer(() -> service.getRecommendations(request.getProductId()))
+                .map(r -> toMessage(r)), responseObserver);
+    }
+
+    @Override
+    public void getRecommendationsForProducts(ProductIdsRequest request,
+            StreamObserver<RecommendationMessage> responseObserver) {
+        ReactiveGrpc.respond(Flux.defer(() -> service.getRecommendations(request.getProductIdsList()))
+                .map(r -> toMessage(r)), responseObserver);
+    }
+
+    @Override
+    public void deleteRecommendations(ProductIdRequest request, StreamObserver<Empty> responseObserver) {
+        ReactiveGrpc.respond(Mono.defer(() -> service.deleteRecommendations(request.getProductId()))
+                .thenReturn(Empty.getDefaultInstance()), responseObserver);
+    }
+}
@@ -12,7 +12,8 @@ public interface RecommendationMapper {
 
     @Mappings({
             @Mapping(target = "rate", source = "entity.rating"),
-            @Mapping(target = "serviceAddress", ignore = true)
+            @Mapping(target = "serviceAddress", ignore = true),
+            @Mapping(target = "stale", ignore = true)
     })
     Recommendation entityToApi(RecommendationEntity entity);
 
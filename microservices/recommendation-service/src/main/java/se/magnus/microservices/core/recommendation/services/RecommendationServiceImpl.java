@@ -1,11 +1,11 @@
 package se.magnus.microservices.core.recommendation.services;
 
-import static java.util.logging.Level.FINE;
-
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -14,23 +14,34 @@ import se.magnus.api.core.recommendation.RecommendationService;
 import se.magnus.api.exceptions.InvalidInputException;
 import se.magnus.microservices.core.recommendation.persistence.RecommendationEntity;
 import se.magnus.microservices.core.recommendation.persistence.RecommendationRepository;
+import se.magnus.util.http.ConditionalRequests;
+import se.magnus.util.http.RequestDeadline;
 import se.magnus.util.http.ServiceUtil;
+import se.magnus.util.metrics.ReactiveInstrumentation;
 
 @RestController
 public class RecommendationServiceImpl implements RecommendationService {
 
     private static final Logger LOG = LoggerFactory.getLogger(RecommendationServiceImpl.class);
 
+    private static final String REPOSITORY = "recommendation-repository";
+
     private final RecommendationRepository repository;
 
     private final RecommendationMapper mapper;
 
     private final ServiceUtil serviceUtil;
 
+    private final ReactiveMongoOperations mongoTemplate;
+
+    private final ReactiveInstrumentation instrumentation;
+
     @Autowired
-    public RecommendationServiceImpl(RecommendationRepository repository, RecommendationMapper mapper,
-            ServiceUtil serviceUtil) {
+    public RecommendationServiceImpl(RecommendationRepository repository, ReactiveMongoOperations mongoTemplate,
+            RecommendationMapper mapper, ServiceUtil serviceUtil, ReactiveInstrumentation instrumentation) {
         this.repository = repository;
+        this.mongoTemplate = mongoTemplate;
+        this.instrumentation = instrumentation;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
     }
@@ -44,7 +55,8 @@ public class RecommendationServiceImpl implements RecommendationService {
 
         RecommendationEntity entity = mapper.apiToEntity(body);
         Mono<Recommendation> newEntity = repository.save(entity)
-                .log(LOG.getName(), FINE)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "save"))
                 .onErrorMap(
                         DuplicateKeyException.class,
                         ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()
@@ -54,6 +66,29 @@ public class RecommendationServiceImpl implements RecommendationService {
         return newEntity;
     }
 
+    @Override
+    public Flux<Recommendation> createRecommendations(List<Recommendation> body) {
+
+        body.forEach(r -> {
+            if (r.getProductId() < 1) {
+                throw new InvalidInputException("Invalid productId: " + r.getProductId());
+            }
+        });
+
+        LOG.debug("createRecommendations: inserts {} recommendations", body.size());
+
+        // insertAll() sends all documents in a single insertMany command instead of one save per document
+        List<RecommendationEntity> entities = body.stream().map(r -> mapper.apiToEntity(r)).toList();
+        return mongoTemplate.insertAll(entities)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "insertAll"))
+                .onErrorMap(
+                        DuplicateKeyException.class,
+                        ex -> new InvalidInputException("Duplicate key in batch of recommendations: "
+                                + ex.getMessage()))
+                .map(e -> mapper.entityToApi(e));
+    }
+
     @Override
     public Flux<Recommendation> getRecommendations(int productId) {
 
@@ -64,7 +99,35 @@ public class RecommendationServiceImpl implements RecommendationService {
         LOG.info("Will get recommendations for product with id={}", productId);
 
         return repository.findByProductId(productId)
-                .log(LOG.getName(), FINE)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "findByProductId"))
+                .collectList()
+                .flatMap(entities -> ConditionalRequests.ifNoneMatch(etag(entities), () -> entities))
+                .flatMapMany(Flux::fromIterable)
+                .map(e -> mapper.entityToApi(e))
+                .map(e -> setServiceAddress(e));
+    }
+
+    private String etag(List<RecommendationEntity> entities) {
+        ConditionalRequests.Builder etag = ConditionalRequests.etag().add(entities.size());
+        entities.forEach(e -> etag.add(e.getId()).add(e.getVersion()));
+        return etag.build();
+    }
+
+    @Override
+    public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        LOG.info("Will get recommendations for {} products", productIds.size());
+
+        return repository.findByProductIdIn(productIds)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "findByProductIdIn"))
                 .map(e -> mapper.entityToApi(e))
                 .map(e -> setServiceAddress(e));
     }
@@ -78,7 +141,13 @@ public class RecommendationServiceImpl implements RecommendationService {
 
         LOG.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}",
                 productId);
-        return repository.deleteAll(repository.findByProductId(productId));
+        return repository.deleteByProductId(productId)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "deleteByProductId"))
+                .doOnNext(count -> LOG.debug(
+                        "deleteRecommendations: deleted {} recommendations for the product with productId: {}",
+                        count, productId))
+                .then();
     }
 
     private Recommendation setServiceAddress(Recommendation e) {
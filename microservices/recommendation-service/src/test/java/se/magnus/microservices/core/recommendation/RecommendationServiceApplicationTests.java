@@ -6,6 +6,7 @@ import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.core.publisher.Mono.just;
 
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +18,7 @@ import se.magnus.microservices.core.recommendation.persistence.RecommendationRep
 
 import se.magnus.microservices.core.recommendation.persistence.MongoDbTestBase;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "app.grpc.port=0")
 class RecommendationServiceApplicationTests extends MongoDbTestBase {
 	@Autowired
 	private WebTestClient client;
@@ -47,6 +48,38 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 				.jsonPath("$[2].recommendationId").isEqualTo(3);
 	}
 
+	@Test
+	void getRecommendationsByProductIds() {
+
+		postAndVerifyRecommendation(1, 1, OK);
+		postAndVerifyRecommendation(1, 2, OK);
+		postAndVerifyRecommendation(2, 1, OK);
+		postAndVerifyRecommendation(3, 1, OK);
+
+		getAndVerifyRecommendationsByProductId("?productIds=1,2", OK)
+				.jsonPath("$.length()").isEqualTo(3);
+	}
+
+	@Test
+	void createRecommendationsInBatch() {
+
+		List<Recommendation> recommendations = List.of(
+				new Recommendation(1, 1, "Author 1", 1, "Content 1", "SA"),
+				new Recommendation(1, 2, "Author 2", 2, "Content 2", "SA"),
+				new Recommendation(1, 3, "Author 3", 3, "Content 3", "SA"));
+
+		client.post()
+				.uri("/recommendation/batch")
+				.bodyValue(recommendations)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(3);
+
+		assertEquals(3, (long) repository.findByProductId(1).count().block());
+	}
+
 	@Test
 	void duplicateError() {
 
@@ -4,17 +4,21 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import se.magnus.microservices.core.recommendation.persistence.RecommendationEntity;
 import se.magnus.microservices.core.recommendation.persistence.RecommendationRepository;
 
 @DataMongoTest
+// The instrumented services are component scanned too, but the metrics aren't auto-configured in a slice test
+@Import(SimpleMeterRegistry.class)
 public class RecommendationRepositoryTest extends MongoDbTestBase {
 
     @Autowired
@@ -60,6 +64,16 @@ public class RecommendationRepositoryTest extends MongoDbTestBase {
         assertFalse(repository.existsById(savedEntity.getId()).block());
     }
 
+    @Test
+    void deleteByProductId() {
+        repository.save(new RecommendationEntity(1, 3, "a", 3, "c")).block();
+        repository.save(new RecommendationEntity(2, 1, "a", 3, "c")).block();
+
+        assertEquals(2, repository.deleteByProductId(1).block());
+        assertEquals(0, repository.findByProductId(1).count().block());
+        assertEquals(1, repository.findByProductId(2).count().block());
+    }
+
     @Test
     void getByProductId() {
         List<RecommendationEntity> entityList = repository.findByProductId(savedEntity.getProductId()).collectList()
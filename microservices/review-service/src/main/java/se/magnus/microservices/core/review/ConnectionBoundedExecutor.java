@@ -0,0 +1,143 @@
+package se.magnus.microservices.core.review;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Runs blocking calls at most as many at a time as the connection pool has connections, used by the
+ * virtual-threads mode of the jdbcScheduler. A call waiting for a permit is only an entry in a queue,
+ * it doesn't hold a thread, so the number of waiting calls isn't bounded by a number of threads.
+ *
+ * The calls run on virtual threads if the JVM has them, i.e. Java 21 or later, and on platform
+ * threads otherwise. A thread is only started for a call holding a permit, so there are never more
+ * busy threads than permits.
+ */
+public class ConnectionBoundedExecutor extends AbstractExecutorService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConnectionBoundedExecutor.class);
+
+  private final ExecutorService delegate;
+  private final boolean virtualThreads;
+  private final Semaphore permits;
+  private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+  public ConnectionBoundedExecutor(int maxConcurrentCalls, String threadNamePrefix) {
+    ExecutorService virtualThreadExecutor = newVirtualThreadExecutor(threadNamePrefix);
+    this.virtualThreads = virtualThreadExecutor != null;
+    this.delegate = virtualThreads ? virtualThreadExecutor : Executors.newCachedThreadPool(platformThreads(threadNamePrefix));
+    this.permits = new Semaphore(maxConcurrentCalls);
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (delegate.isShutdown()) {
+      throw new RejectedExecutionException("Executor is shut down");
+    }
+    waiting.add(command);
+    drain();
+  }
+
+  /*
+   * Starts waiting calls while there are permits. A finishing call releases its permit before it
+   * drains, so a call added while all permits were taken is started by the next one to finish.
+   */
+  private void drain() {
+    while (!waiting.isEmpty() && permits.tryAcquire()) {
+      Runnable command = waiting.poll();
+      if (command == null) {
+        permits.release();
+        continue;
+      }
+      try {
+        delegate.execute(() -> {
+          try {
+            command.run();
+          } finally {
+            permits.release();
+            drain();
+          }
+        });
+      } catch (RejectedExecutionException ree) {
+        // Shut down while draining
+        permits.release();
+        throw ree;
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> notStarted = List.copyOf(waiting);
+    waiting.clear();
+    delegate.shutdownNow();
+    return notStarted;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+
+  /*
+   * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory()), looked up by
+   * reflection since the code is compiled for Java 17. Returns null if the JVM has no virtual threads.
+   */
+  private static ExecutorService newVirtualThreadExecutor(String threadNamePrefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+      ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      LOG.info("Virtual threads are not available in Java {}, uses platform threads",
+        System.getProperty("java.specification.version"));
+      return null;
+
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Failed to create a virtual thread executor", e);
+    }
+  }
+
+  private static ThreadFactory platformThreads(String threadNamePrefix) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, threadNamePrefix + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,215 @@
+package se.magnus.microservices.core.review;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/*
+ * Records how saturated a scheduler of blocking calls is, used for the jdbcScheduler. All meters are
+ * tagged with the name of the scheduler:
+ *
+ * - app.scheduler.queued, a gauge of the calls waiting for a thread, or for a connection in the
+ *   virtual-threads mode.
+ * - app.scheduler.wait, a timer with a percentile histogram of the time calls waited.
+ * - app.scheduler.execution, a timer with a percentile histogram of the time calls ran.
+ * - app.scheduler.rejected, a counter of the calls rejected since the queue was full.
+ *
+ * Only calls scheduled without a delay are recorded, i.e. those of subscribeOn() and publishOn().
+ */
+public class InstrumentedScheduler implements Scheduler {
+
+  private final Scheduler delegate;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Timer waitTimer;
+  private final Timer executionTimer;
+  private final Counter rejected;
+
+  public InstrumentedScheduler(Scheduler delegate, String name, MeterRegistry registry) {
+    this.delegate = delegate;
+    Tags tags = Tags.of("name", name);
+    Gauge.builder("app.scheduler.queued", queued, AtomicInteger::get)
+      .description("Calls waiting to run on the scheduler")
+      .tags(tags)
+      .register(registry);
+    this.waitTimer = Timer.builder("app.scheduler.wait")
+      .description("Time calls waited to run on the scheduler")
+      .tags(tags)
+      .publishPercentileHistogram()
+      .minimumExpectedValue(Duration.ofMillis(1))
+      .maximumExpectedValue(Duration.ofSeconds(10))
+      .register(registry);
+    this.executionTimer = Timer.builder("app.scheduler.execution")
+      .description("Time calls ran on the scheduler")
+      .tags(tags)
+      .publishPercentileHistogram()
+      .minimumExpectedValue(Duration.ofMillis(1))
+      .maximumExpectedValue(Duration.ofSeconds(10))
+      .register(registry);
+    this.rejected = Counter.builder("app.scheduler.rejected")
+      .description("Calls rejected by the scheduler since its queue was full")
+      .tags(tags)
+      .register(registry);
+  }
+
+  @Override
+  public Disposable schedule(Runnable task) {
+    QueuedTask queuedTask = new QueuedTask(task);
+    Disposable disposable = submit(queuedTask, delegate::schedule);
+    return () -> {
+      queuedTask.leaveQueue();
+      disposable.dispose();
+    };
+  }
+
+  @Override
+  public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+    return delegate.schedule(task, delay, unit);
+  }
+
+  @Override
+  public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+    return delegate.schedulePeriodically(task, initialDelay, period, unit);
+  }
+
+  @Override
+  public long now(TimeUnit unit) {
+    return delegate.now(unit);
+  }
+
+  @Override
+  public Worker createWorker() {
+    return new InstrumentedWorker(delegate.createWorker());
+  }
+
+  @Override
+  public void init() {
+    delegate.init();
+  }
+
+  @Override
+  public void dispose() {
+    delegate.dispose();
+  }
+
+  @Override
+  public Mono<Void> disposeGracefully() {
+    return delegate.disposeGracefully();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return delegate.isDisposed();
+  }
+
+  private Disposable submit(QueuedTask task, Function<Runnable, Disposable> schedule) {
+    try {
+      return schedule.apply(task);
+
+    } catch (RejectedExecutionException ree) {
+      task.leaveQueue();
+      rejected.increment();
+      throw ree;
+    }
+  }
+
+  /*
+   * subscribeOn() cancels by disposing its worker, not its task, so the worker takes the tasks it
+   * hasn't started out of the queue when it's disposed.
+   */
+  private class InstrumentedWorker implements Worker {
+
+    private final Worker delegate;
+    private final Set<QueuedTask> notStarted = ConcurrentHashMap.newKeySet();
+
+    InstrumentedWorker(Worker delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Disposable schedule(Runnable task) {
+      QueuedTask queuedTask = new QueuedTask(task) {
+        @Override
+        boolean leaveQueue() {
+          notStarted.remove(this);
+          return super.leaveQueue();
+        }
+      };
+      notStarted.add(queuedTask);
+      Disposable disposable = submit(queuedTask, delegate::schedule);
+      return () -> {
+        queuedTask.leaveQueue();
+        disposable.dispose();
+      };
+    }
+
+    @Override
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+      return delegate.schedule(task, delay, unit);
+    }
+
+    @Override
+    public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+      return delegate.schedulePeriodically(task, initialDelay, period, unit);
+    }
+
+    @Override
+    public void dispose() {
+      notStarted.forEach(QueuedTask::leaveQueue);
+      delegate.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return delegate.isDisposed();
+    }
+  }
+
+  /*
+   * Counted as queued from its creation until it starts, is disposed or is rejected, whichever is first.
+   */
+  private class QueuedTask implements Runnable {
+
+    private final Runnable task;
+    private final long queuedAt = System.nanoTime();
+    private final AtomicBoolean inQueue = new AtomicBoolean(true);
+
+    QueuedTask(Runnable task) {
+      this.task = task;
+      queued.incrementAndGet();
+    }
+
+    boolean leaveQueue() {
+      if (inQueue.compareAndSet(true, false)) {
+        queued.decrementAndGet();
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void run() {
+      long startedAt = System.nanoTime();
+      if (leaveQueue()) {
+        waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+      }
+      try {
+        task.run();
+      } finally {
+        executionTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
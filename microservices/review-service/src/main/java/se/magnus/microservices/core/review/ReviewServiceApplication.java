@@ -1,5 +1,6 @@
 package se.magnus.microservices.core.review;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Profile;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
@@ -20,19 +22,52 @@ public class ReviewServiceApplication {
 
   private final Integer threadPoolSize;
   private final Integer taskQueueSize;
+  private final String jdbcSchedulerMode;
+  private final Integer connectionPoolSize;
 
   @Autowired
   public ReviewServiceApplication(
       @Value("${app.threadPoolSize:10}") Integer threadPoolSize,
-      @Value("${app.taskQueueSize:100}") Integer taskQueueSize) {
+      @Value("${app.taskQueueSize:100}") Integer taskQueueSize,
+      @Value("${app.jdbcSchedulerMode:bounded-elastic}") String jdbcSchedulerMode,
+      @Value("${spring.datasource.hikari.maximum-pool-size:10}") Integer connectionPoolSize) {
     this.threadPoolSize = threadPoolSize;
     this.taskQueueSize = taskQueueSize;
+    this.jdbcSchedulerMode = jdbcSchedulerMode;
+    this.connectionPoolSize = connectionPoolSize;
   }
 
+  /*
+   * In the bounded-elastic mode, the blocking JPA calls run on app.threadPoolSize threads, and calls
+   * beyond app.taskQueueSize waiting ones are rejected. In the virtual-threads mode, as many calls
+   * run at a time as the Hikari pool has connections, and the other calls wait without a limit.
+   *
+   * Either way, its saturation is recorded by an InstrumentedScheduler.
+   *
+   * Not needed by the non-blocking persistence of the r2dbc profile.
+   */
   @Bean
-  public Scheduler jdbcScheduler() {
-    LOG.info("Creates a jdbcScheduler with thread pool size = {}", threadPoolSize);
-    return Schedulers.newBoundedElastic(threadPoolSize, taskQueueSize, "jdbc-pool");
+  @Profile("!r2dbc")
+  public Scheduler jdbcScheduler(MeterRegistry registry) {
+    return new InstrumentedScheduler(newJdbcScheduler(), "jdbc-pool", registry);
+  }
+
+  private Scheduler newJdbcScheduler() {
+    switch (jdbcSchedulerMode) {
+      case "bounded-elastic":
+        LOG.info("Creates a jdbcScheduler with thread pool size = {}", threadPoolSize);
+        return Schedulers.newBoundedElastic(threadPoolSize, taskQueueSize, "jdbc-pool");
+
+      case "virtual-threads":
+        ConnectionBoundedExecutor executor = new ConnectionBoundedExecutor(connectionPoolSize, "jdbc-");
+        LOG.info("Creates a jdbcScheduler running {} calls at a time on {} threads", connectionPoolSize,
+            executor.isVirtualThreads() ? "virtual" : "platform");
+        return Schedulers.fromExecutorService(executor, "jdbc-pool");
+
+      default:
+        throw new IllegalArgumentException("Unknown app.jdbcSchedulerMode: " + jdbcSchedulerMode
+            + ", expected bounded-elastic or virtual-threads");
+    }
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,24 @@
+package se.magnus.microservices.core.review.persistence;
+
+import java.util.Collection;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveReviewRepository extends ReactiveCrudRepository<ReactiveReviewEntity, Integer> {
+
+  Flux<ReactiveReviewEntity> findByProductId(int productId);
+
+  // A range scan of reviews_unique_idx, which is ordered by productId and reviewId
+  Flux<ReactiveReviewEntity> findByProductIdAndReviewIdGreaterThanOrderByProductIdAscReviewIdAsc(int productId,
+      int reviewId, Limit limit);
+
+  Flux<ReactiveReviewEntity> findByProductIdIn(Collection<Integer> productIds);
+
+  @Modifying
+  @Query("DELETE FROM reviews WHERE product_id = :productId")
+  Mono<Long> deleteByProductId(int productId);
+}
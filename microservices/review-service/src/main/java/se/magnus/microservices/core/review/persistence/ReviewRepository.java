@@ -1,11 +1,38 @@
 package se.magnus.microservices.core.review.persistence;
 
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.transaction.annotation.Transactional;
+import se.magnus.api.core.review.Review;
 
 public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
 
+  String SELECT_REVIEWS = "SELECT new se.magnus.api.core.review.Review("
+      + "r.productId, r.reviewId, r.author, r.subject, r.content, cast(null as String)) FROM ReviewEntity r ";
+
+  // Read-only projections of the columns of the API class. No entities are loaded into the
+  // persistence context, and the service sets the serviceAddress
+  @Transactional(readOnly = true)
+  @Query(SELECT_REVIEWS + "WHERE r.productId = :productId")
+  List<Review> findReviewsByProductId(int productId);
+
+  // A range scan of reviews_unique_idx, which is ordered by productId and reviewId
   @Transactional(readOnly = true)
-  List<ReviewEntity> findByProductId(int productId);
+  @Query(SELECT_REVIEWS + "WHERE r.productId = :productId AND r.reviewId > :afterReviewId "
+      + "ORDER BY r.productId, r.reviewId")
+  List<Review> findReviewPageByProductId(int productId, int afterReviewId, Limit limit);
+
+  @Transactional(readOnly = true)
+  @Query(SELECT_REVIEWS + "WHERE r.productId IN :productIds")
+  List<Review> findReviewsByProductIdIn(Collection<Integer> productIds);
+
+  // One DELETE statement, a derived deleteByProductId would load the entities and delete them one by one
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ReviewEntity r WHERE r.productId = :productId")
+  int deleteByProductId(int productId);
 }
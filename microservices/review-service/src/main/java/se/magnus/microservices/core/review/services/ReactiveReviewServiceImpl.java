@@ -0,0 +1,206 @@
+package se.magnus.microservices.core.review.services;
+
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewPage;
+import se.magnus.api.core.review.ReviewService;
+import se.magnus.api.exceptions.InvalidInputException;
+import se.magnus.microservices.core.review.persistence.ReactiveReviewEntity;
+import se.magnus.microservices.core.review.persistence.ReactiveReviewRepository;
+import se.magnus.util.http.ConditionalRequests;
+import se.magnus.util.http.RequestDeadline;
+import se.magnus.util.http.ServiceUtil;
+import se.magnus.util.metrics.ReactiveInstrumentation;
+
+/*
+ * The review service on R2DBC, used instead of ReviewServiceImpl in the r2dbc profile. The queries
+ * run on the event loop of the R2DBC driver, so no call waits for a thread of the jdbcScheduler,
+ * only for a connection of the R2DBC pool.
+ */
+@RestController
+@Profile("r2dbc")
+public class ReactiveReviewServiceImpl implements ReviewService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveReviewServiceImpl.class);
+
+    private static final String REPOSITORY = "review-repository";
+
+    private final ReactiveReviewRepository repository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ReviewMapper mapper;
+
+    private final ServiceUtil serviceUtil;
+
+    private final ReactiveInstrumentation instrumentation;
+
+    private final int maxPageSize;
+
+    @Autowired
+    public ReactiveReviewServiceImpl(ReactiveReviewRepository repository, TransactionalOperator transactionalOperator,
+            ReviewMapper mapper, ServiceUtil serviceUtil, ReactiveInstrumentation instrumentation,
+            @Value("${app.review.max-page-size:1000}") int maxPageSize) {
+        this.repository = repository;
+        this.transactionalOperator = transactionalOperator;
+        this.mapper = mapper;
+        this.serviceUtil = serviceUtil;
+        this.instrumentation = instrumentation;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public Mono<Review> createReview(Review body) {
+
+        if (body.getProductId() < 1) {
+            throw new InvalidInputException("Invalid productId: " + body.getProductId());
+        }
+
+        return repository.save(mapper.apiToReactiveEntity(body))
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "save"))
+                .onErrorMap(
+                        DataIntegrityViolationException.class,
+                        ex -> new InvalidInputException(
+                                "Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId()))
+                .doOnNext(e -> LOG.debug("createReview: created a review entity: {}/{}", e.getProductId(), e.getReviewId()))
+                .map(e -> mapper.reactiveEntityToApi(e));
+    }
+
+    @Override
+    public Flux<Review> createReviews(List<Review> body) {
+
+        body.forEach(r -> {
+            if (r.getProductId() < 1) {
+                throw new InvalidInputException("Invalid productId: " + r.getProductId());
+            }
+        });
+
+        // All or none of the reviews are created, the inserts are sent one by one over the same connection.
+        // The reviews are collected until the commit, so an error can't follow a response already started.
+        List<ReactiveReviewEntity> entities = body.stream().map(r -> mapper.apiToReactiveEntity(r)).toList();
+        return repository.saveAll(entities)
+                .collectList()
+                .as(transactionalOperator::transactional)
+                .flatMapIterable(list -> list)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "saveAll"))
+                .onErrorMap(
+                        DataIntegrityViolationException.class,
+                        ex -> new InvalidInputException("Duplicate key in batch of reviews: " + ex.getMessage()))
+                .map(e -> mapper.reactiveEntityToApi(e));
+    }
+
+    @Override
+    public Flux<Review> getReviews(int productId) {
+
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+
+        LOG.info("Will get reviews for product with id={}", productId);
+
+        return repository.findByProductId(productId)
+                .collectList()
+                .flatMap(entities -> ConditionalRequests.ifNoneMatch(etag(entities), () -> toApiList(entities)))
+                .flatMapMany(Flux::fromIterable)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "findByProductId"));
+    }
+
+    @Override
+    public Mono<ReviewPage> getReviewPage(int productId, int limit, String after) {
+
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidInputException("Invalid limit: " + limit + ", must be between 1 and " + maxPageSize);
+        }
+        int afterReviewId = ReviewCursor.decode(productId, after);
+
+        LOG.info("Will get {} reviews for product with id={} after reviewId={}", limit, productId, afterReviewId);
+
+        // Asks for one more review than the page holds to know if there is a next page
+        return repository.findByProductIdAndReviewIdGreaterThanOrderByProductIdAscReviewIdAsc(
+                        productId, afterReviewId, Limit.of(limit + 1))
+                .collectList()
+                .map(entities -> toPage(productId, limit, entities))
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "findPageByProductId"));
+    }
+
+    private ReviewPage toPage(int productId, int limit, List<ReactiveReviewEntity> entities) {
+
+        if (entities.size() <= limit) {
+            return new ReviewPage(toApiList(entities), null);
+        }
+        List<ReactiveReviewEntity> page = entities.subList(0, limit);
+        return new ReviewPage(toApiList(page), ReviewCursor.encode(productId, page.get(limit - 1).getReviewId()));
+    }
+
+    @Override
+    public Flux<Review> getReviews(List<Integer> productIds) {
+
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        LOG.info("Will get reviews for {} products", productIds.size());
+
+        return repository.findByProductIdIn(productIds)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "findByProductIdIn"))
+                .map(e -> setServiceAddress(mapper.reactiveEntityToApi(e)));
+    }
+
+    @Override
+    public Mono<Void> deleteReviews(int productId) {
+
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+
+        LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
+
+        return repository.deleteByProductId(productId)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "deleteByProductId"))
+                .doOnNext(count -> LOG.debug("deleteReviews: deleted {} reviews for the product with productId: {}",
+                        count, productId))
+                .then();
+    }
+
+    private List<Review> toApiList(List<ReactiveReviewEntity> entityList) {
+
+        List<Review> list = entityList.stream().map(e -> setServiceAddress(mapper.reactiveEntityToApi(e))).toList();
+
+        LOG.debug("Response size: {}", list.size());
+
+        return list;
+    }
+
+    private Review setServiceAddress(Review review) {
+        review.setServiceAddress(serviceUtil.getServiceAddress());
+        return review;
+    }
+
+    private String etag(List<ReactiveReviewEntity> entities) {
+        ConditionalRequests.Builder etag = ConditionalRequests.etag().add(entities.size());
+        entities.forEach(e -> etag.add(e.getId()).add(e.getVersion()));
+        return etag.build();
+    }
+}
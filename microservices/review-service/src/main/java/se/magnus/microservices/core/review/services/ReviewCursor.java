@@ -0,0 +1,38 @@
+package se.magnus.microservices.core.review.services;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.util.Base64;
+import se.magnus.api.exceptions.InvalidInputException;
+
+/*
+ * The nextCursor of a ReviewPage. The cursor is opaque to the caller, it holds the key of the last
+ * review of the page. The productId is included to reject a cursor passed with the wrong product.
+ */
+final class ReviewCursor {
+
+    private ReviewCursor() {
+    }
+
+    static String encode(int productId, int reviewId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((productId + ":" + reviewId).getBytes(US_ASCII));
+    }
+
+    /**
+     * Returns the reviewId held by the cursor, or Integer.MIN_VALUE for the first page if the cursor is null.
+     */
+    static int decode(int productId, String cursor) {
+        if (cursor == null) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), US_ASCII).split(":");
+            if (key.length == 2 && Integer.parseInt(key[0]) == productId) {
+                return Integer.parseInt(key[1]);
+            }
+        } catch (IllegalArgumentException iae) {
+            // Not Base64 or not numbers, NumberFormatException is an IllegalArgumentException
+        }
+        throw new InvalidInputException("Invalid cursor: " + cursor);
+    }
+}
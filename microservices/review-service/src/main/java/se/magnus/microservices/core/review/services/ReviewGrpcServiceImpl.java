@@ -0,0 +1,72 @@
+package se.magnus.microservices.core.review.services;
+
+import static se.magnus.api.grpc.ProtoMapper.toApi;
+import static se.magnus.api.grpc.ProtoMapper.toMessage;
+
+import com.google.protobuf.Empty;
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewService;
+import se.magnus.api.grpc.ProductIdRequest;
+import se.magnus.api.grpc.ProductIdsRequest;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc;
+import se.magnus.api.grpc.ReviewList;
+import se.magnus.api.grpc.ReviewMessage;
+import se.magnus.api.grpc.ReviewPageMessage;
+import se.magnus.api.grpc.ReviewPageRequest;
+import se.magnus.util.grpc.ReactiveGrpc;
+
+/*
+ * The gRPC API of the review service, served by GrpcServer on app.grpc.port. Delegates to the
+ * same ReviewService as the REST API, lists of reviews are server-streamed.
+ */
+@Component
+public class ReviewGrpcServiceImpl extends ReviewGrpcServiceGrpc.ReviewGrpcServiceImplBase {
+
+    private final ReviewService service;
+
+    public ReviewGrpcServiceImpl(ReviewService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void createReview(ReviewMessage request, StreamObserver<ReviewMessage> responseObserver) {
+        ReactiveGrpc.respond(Mono.defer(() -> service.createReview(toApi(request))).map(r -> toMessage(r)),
+                responseObserver);
+    }
+
+    @Override
+    public void createReviews(ReviewList request, StreamObserver<ReviewMessage> responseObserver) {
+        List<Review> body = request.getReviewsList().stream().map(r -> toApi(r)).toList();
+        ReactiveGrpc.respond(Flux.defer(() -> service.createReviews(body)).map(r -> toMessage(r)), responseObserver);
+    }
+
+    @Override
+    public void getReviews(ProductIdRequest request, StreamObserver<ReviewMessage> responseObserver) {
+        ReactiveGrpc.respond(Flux.defer(() -> service.getReviews(request.getProductId())).map(r -> toMessage(r)),
+                responseObserver);
+    }
+
+    @Override
+    public void getReviewPage(ReviewPageRequest request, StreamObserver<ReviewPageMessage> responseObserver) {
+        String after = request.getAfter().isEmpty() ? null : request.getAfter();
+        ReactiveGrpc.respond(Mono.defer(() -> service.getReviewPage(request.getProductId(), request.getLimit(), after))
+                .map(p -> toMessage(p)), responseObserver);
+    }
+
+    @Override
+    public void getReviewsForProducts(ProductIdsRequest request, StreamObserver<ReviewMessage> responseObserver) {
+        ReactiveGrpc.respond(Flux.defer(() -> service.getReviews(request.getProductIdsList()))
+                .map(r -> toMessage(r)), responseObserver);
+    }
+
+    @Override
+    public void deleteReviews(ProductIdRequest request, StreamObserver<Empty> responseObserver) {
+        ReactiveGrpc.respond(Mono.defer(() -> service.deleteReviews(request.getProductId()))
+                .thenReturn(Empty.getDefaultInstance()), responseObserver);
+    }
+}
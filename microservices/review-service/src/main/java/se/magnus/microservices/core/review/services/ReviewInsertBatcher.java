@@ -0,0 +1,137 @@
+package se.magnus.microservices.core.review.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.exceptions.InvalidInputException;
+import se.magnus.microservices.core.review.persistence.ReviewEntity;
+import se.magnus.microservices.core.review.persistence.ReviewRepository;
+import se.magnus.util.metrics.ReactiveInstrumentation;
+
+/*
+ * Write-behind batching of createReview, enabled with app.review.insert-batch.enabled. Concurrent
+ * inserts are gathered until max-size of them are waiting or the oldest has waited max-delay, and
+ * the batch is then saved with one saveAll() on the jdbcScheduler, i.e. in one transaction and as
+ * JDBC batches of hibernate.jdbc.batch_size inserts.
+ *
+ * If a batch fails, e.g. on a duplicate key, its reviews are saved again one by one, so each caller
+ * gets its own result or error. A review whose caller has given up, e.g. on its deadline, before
+ * the batch is saved is skipped.
+ */
+@Component
+@Profile("!r2dbc")
+@ConditionalOnProperty(name = "app.review.insert-batch.enabled", havingValue = "true")
+class ReviewInsertBatcher implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReviewInsertBatcher.class);
+
+    private static final String REPOSITORY = "review-repository";
+
+    private final ReviewRepository repository;
+
+    private final ReviewMapper mapper;
+
+    private FluxSink<PendingInsert> inserts;
+
+    ReviewInsertBatcher(@Qualifier("jdbcScheduler") Scheduler jdbcScheduler,
+            ReviewRepository repository, ReviewMapper mapper, ReactiveInstrumentation instrumentation,
+            @Value("${app.review.insert-batch.max-size:50}") int maxSize,
+            @Value("${app.review.insert-batch.max-delay:5ms}") Duration maxDelay,
+            @Value("${app.review.insert-batch.max-concurrent-batches:4}") int maxConcurrentBatches) {
+        this.repository = repository;
+        this.mapper = mapper;
+
+        // Flux.create() calls back at once on subscribe, its sink may be called from any thread
+        Flux.<PendingInsert>create(sink -> this.inserts = sink)
+                .bufferTimeout(maxSize, maxDelay, true)
+                .flatMap(batch -> Mono.fromRunnable(() -> saveBatch(batch))
+                        .subscribeOn(jdbcScheduler)
+                        .transform(instrumentation.mono(REPOSITORY, "saveBatch"))
+                        .onErrorResume(e -> {
+                            batch.forEach(pending -> pending.sink.error(e));
+                            return Mono.empty();
+                        }), maxConcurrentBatches)
+                .subscribe();
+
+        LOG.info("Batches inserted reviews, at most {} per batch, waiting at most {}", maxSize, maxDelay);
+    }
+
+    Mono<Review> insert(Review body) {
+        return Mono.create(sink -> {
+            PendingInsert pending = new PendingInsert(body, sink);
+            sink.onCancel(() -> pending.cancelled = true);
+            inserts.next(pending);
+        });
+    }
+
+    private void saveBatch(List<PendingInsert> batch) {
+
+        List<PendingInsert> live = batch.stream().filter(pending -> !pending.cancelled).toList();
+        if (live.isEmpty()) {
+            return;
+        }
+
+        List<ReviewEntity> saved = new ArrayList<>(live.size());
+        try {
+            repository.saveAll(live.stream().map(pending -> mapper.apiToEntity(pending.body)).toList()).forEach(saved::add);
+
+        } catch (DataIntegrityViolationException dive) {
+            // The entities of the rolled back batch have ids assigned, so new ones are saved
+            LOG.debug("createReview: batch of {} reviews failed, saves them one by one: {}", live.size(), dive.getMessage());
+            live.forEach(this::saveOne);
+            return;
+        }
+
+        LOG.debug("createReview: created a batch of {} review entities", saved.size());
+        for (int i = 0; i < live.size(); i++) {
+            live.get(i).sink.success(mapper.entityToApi(saved.get(i)));
+        }
+    }
+
+    private void saveOne(PendingInsert pending) {
+        Review body = pending.body;
+        try {
+            pending.sink.success(mapper.entityToApi(repository.save(mapper.apiToEntity(body))));
+
+        } catch (DataIntegrityViolationException dive) {
+            pending.sink.error(new InvalidInputException(
+                    "Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId()));
+
+        } catch (RuntimeException e) {
+            pending.sink.error(e);
+        }
+    }
+
+    // Saves the reviews still waiting as a last batch, without waiting for it
+    @Override
+    public void destroy() {
+        inserts.complete();
+    }
+
+    private static class PendingInsert {
+
+        final Review body;
+        final MonoSink<Review> sink;
+        volatile boolean cancelled;
+
+        PendingInsert(Review body, MonoSink<Review> sink) {
+            this.body = body;
+            this.sink = sink;
+        }
+    }
+}
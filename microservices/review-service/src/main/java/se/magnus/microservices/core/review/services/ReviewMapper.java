@@ -5,13 +5,15 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import se.magnus.api.core.review.Review;
+import se.magnus.microservices.core.review.persistence.ReactiveReviewEntity;
 import se.magnus.microservices.core.review.persistence.ReviewEntity;
 
 @Mapper(componentModel = "spring")
 public interface ReviewMapper {
 
     @Mappings({
-            @Mapping(target = "serviceAddress", ignore = true)
+            @Mapping(target = "serviceAddress", ignore = true),
+            @Mapping(target = "stale", ignore = true)
     })
     Review entityToApi(ReviewEntity entity);
 
@@ -24,4 +26,16 @@ public interface ReviewMapper {
     List<Review> entityListToApiList(List<ReviewEntity> entity);
 
     List<ReviewEntity> apiListToEntityList(List<Review> api);
+
+    @Mappings({
+            @Mapping(target = "serviceAddress", ignore = true),
+            @Mapping(target = "stale", ignore = true)
+    })
+    Review reactiveEntityToApi(ReactiveReviewEntity entity);
+
+    @Mappings({
+            @Mapping(target = "id", ignore = true),
+            @Mapping(target = "version", ignore = true)
+    })
+    ReactiveReviewEntity apiToReactiveEntity(Review api);
 }
\ No newline at end of file
@@ -1,29 +1,39 @@
 package se.magnus.microservices.core.review.services;
 
-import static java.util.logging.Level.FINE;
-
+import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewPage;
 import se.magnus.api.core.review.ReviewService;
 import se.magnus.api.exceptions.InvalidInputException;
 import se.magnus.microservices.core.review.persistence.ReviewEntity;
 import se.magnus.microservices.core.review.persistence.ReviewRepository;
+import se.magnus.util.http.ConditionalRequests;
+import se.magnus.util.http.RequestDeadline;
 import se.magnus.util.http.ServiceUtil;
+import se.magnus.util.metrics.ReactiveInstrumentation;
 
 @RestController
+@Profile("!r2dbc")
 public class ReviewServiceImpl implements ReviewService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
 
+    private static final String REPOSITORY = "review-repository";
+
     private final ReviewRepository repository;
 
     private final ReviewMapper mapper;
@@ -32,11 +42,23 @@ public class ReviewServiceImpl implements ReviewService {
 
     private final Scheduler jdbcScheduler;
 
+    private final ReactiveInstrumentation instrumentation;
+
+    private final int maxPageSize;
+
+    // Null unless app.review.insert-batch.enabled is true
+    private final ReviewInsertBatcher insertBatcher;
+
     @Autowired
     public ReviewServiceImpl(@Qualifier("jdbcScheduler") Scheduler jdbcScheduler,
             ReviewRepository repository,
-            ReviewMapper mapper, ServiceUtil serviceUtil) {
+            ReviewMapper mapper, ServiceUtil serviceUtil, ReactiveInstrumentation instrumentation,
+            @Value("${app.review.max-page-size:1000}") int maxPageSize,
+            ObjectProvider<ReviewInsertBatcher> insertBatcher) {
+        this.maxPageSize = maxPageSize;
+        this.insertBatcher = insertBatcher.getIfAvailable();
         this.jdbcScheduler = jdbcScheduler;
+        this.instrumentation = instrumentation;
         this.repository = repository;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
@@ -48,8 +70,13 @@ public class ReviewServiceImpl implements ReviewService {
         if (body.getProductId() < 1) {
             throw new InvalidInputException("Invalid productId: " + body.getProductId());
         }
-        return Mono.fromCallable(() -> internalCreateReview(body))
-                .subscribeOn(jdbcScheduler);
+        Mono<Review> insert = insertBatcher != null
+                ? insertBatcher.insert(body)
+                : RequestDeadline.fromCallable(() -> internalCreateReview(body)).subscribeOn(jdbcScheduler);
+
+        return insert
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "save"));
     }
 
     private Review internalCreateReview(Review body) {
@@ -66,6 +93,37 @@ public class ReviewServiceImpl implements ReviewService {
         }
     }
 
+    @Override
+    public Flux<Review> createReviews(List<Review> body) {
+
+        body.forEach(r -> {
+            if (r.getProductId() < 1) {
+                throw new InvalidInputException("Invalid productId: " + r.getProductId());
+            }
+        });
+
+        return RequestDeadline.fromCallable(() -> internalCreateReviews(body))
+                .flatMapMany(Flux::fromIterable)
+                .subscribeOn(jdbcScheduler)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "saveAll"));
+    }
+
+    private List<Review> internalCreateReviews(List<Review> body) {
+        try {
+            // saveAll() runs in one transaction, letting Hibernate send the inserts as JDBC batches
+            List<ReviewEntity> entities = body.stream().map(r -> mapper.apiToEntity(r)).toList();
+            List<Review> list = new ArrayList<>(entities.size());
+            repository.saveAll(entities).forEach(e -> list.add(mapper.entityToApi(e)));
+
+            LOG.debug("createReviews: created {} review entities", list.size());
+            return list;
+
+        } catch (DataIntegrityViolationException dive) {
+            throw new InvalidInputException("Duplicate key in batch of reviews: " + dive.getMessage());
+        }
+    }
+
     @Override
     public Flux<Review> getReviews(int productId) {
 
@@ -75,16 +133,47 @@ public class ReviewServiceImpl implements ReviewService {
 
         LOG.info("Will get reviews for product with id={}", productId);
 
-        return Mono.fromCallable(() -> internalGetReviews(productId))
+        return RequestDeadline.fromCallable(() -> repository.findReviewsByProductId(productId))
+                .flatMap(reviews -> ConditionalRequests.ifNoneMatch(etag(reviews), () -> setServiceAddress(reviews)))
                 .flatMapMany(Flux::fromIterable)
-                .log(LOG.getName(), FINE)
-                .subscribeOn(jdbcScheduler);
+                .subscribeOn(jdbcScheduler)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "findByProductId"));
     }
 
-    private List<Review> internalGetReviews(int productId) {
+    @Override
+    public Mono<ReviewPage> getReviewPage(int productId, int limit, String after) {
+
+        if (productId < 1) {
+            throw new InvalidInputException("Invalid productId: " + productId);
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidInputException("Invalid limit: " + limit + ", must be between 1 and " + maxPageSize);
+        }
+        int afterReviewId = ReviewCursor.decode(productId, after);
+
+        LOG.info("Will get {} reviews for product with id={} after reviewId={}", limit, productId, afterReviewId);
+
+        return RequestDeadline.fromCallable(() -> internalGetReviewPage(productId, limit, afterReviewId))
+                .subscribeOn(jdbcScheduler)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "findPageByProductId"));
+    }
+
+    private ReviewPage internalGetReviewPage(int productId, int limit, int afterReviewId) {
+
+        // Asks for one more review than the page holds to know if there is a next page
+        List<Review> reviews = repository.findReviewPageByProductId(productId, afterReviewId, Limit.of(limit + 1));
+
+        if (reviews.size() <= limit) {
+            return new ReviewPage(setServiceAddress(reviews), null);
+        }
+        List<Review> page = reviews.subList(0, limit);
+        return new ReviewPage(setServiceAddress(page), ReviewCursor.encode(productId, page.get(limit - 1).getReviewId()));
+    }
+
+    private List<Review> setServiceAddress(List<Review> list) {
 
-        List<ReviewEntity> entityList = repository.findByProductId(productId);
-        List<Review> list = mapper.entityListToApiList(entityList);
         list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
 
         LOG.debug("Response size: {}", list.size());
@@ -92,6 +181,36 @@ public class ReviewServiceImpl implements ReviewService {
         return list;
     }
 
+    // The projected reviews have no id and version, so the ETag is built from their content
+    private String etag(List<Review> reviews) {
+        ConditionalRequests.Builder etag = ConditionalRequests.etag().add(reviews.size());
+        reviews.forEach(r -> etag.add(r.getReviewId()).add(r.getAuthor()).add(r.getSubject()).add(r.getContent()));
+        return etag.build();
+    }
+
+    @Override
+    public Flux<Review> getReviews(List<Integer> productIds) {
+
+        productIds.forEach(productId -> {
+            if (productId < 1) {
+                throw new InvalidInputException("Invalid productId: " + productId);
+            }
+        });
+
+        LOG.info("Will get reviews for {} products", productIds.size());
+
+        return RequestDeadline.fromCallable(() -> internalGetReviews(productIds))
+                .flatMapMany(Flux::fromIterable)
+                .subscribeOn(jdbcScheduler)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.flux(REPOSITORY, "findByProductIdIn"));
+    }
+
+    private List<Review> internalGetReviews(List<Integer> productIds) {
+
+        return setServiceAddress(repository.findReviewsByProductIdIn(productIds));
+    }
+
     @Override
     public Mono<Void> deleteReviews(int productId) {
 
@@ -99,13 +218,20 @@ public class ReviewServiceImpl implements ReviewService {
             throw new InvalidInputException("Invalid productId: " + productId);
         }
 
-        return Mono.fromRunnable(() -> internalDeleteReviews(productId)).subscribeOn(jdbcScheduler).then();
+        return RequestDeadline.fromCallable(() -> internalDeleteReviews(productId))
+                .subscribeOn(jdbcScheduler)
+                .transform(RequestDeadline::enforce)
+                .transform(instrumentation.mono(REPOSITORY, "deleteByProductId"))
+                .then();
     }
 
-    private void internalDeleteReviews(int productId) {
+    private int internalDeleteReviews(int productId) {
 
         LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
 
-        repository.deleteAll(repository.findByProductId(productId));
+        int count = repository.deleteByProductId(productId);
+
+        LOG.debug("deleteReviews: deleted {} reviews for the product with productId: {}", count, productId);
+        return count;
     }
 }
\ No newline at end of file
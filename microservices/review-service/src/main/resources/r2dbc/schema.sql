@@ -0,0 +1,19 @@
+-- The reviews table as created by Hibernate, with ddl-auto in the default profile, for the r2dbc
+-- profile. The id has no default, both Hibernate and ReactiveReviewIdGenerator allocate blocks of
+-- 50 ids ending at the value they get from reviews_seq, so each insert doesn't use up a whole block.
+create sequence if not exists reviews_seq start with 1 increment by 50;
+
+create table if not exists reviews (
+    id integer not null,
+    product_id integer not null,
+    review_id integer not null,
+    version integer not null,
+    author varchar(255),
+    content varchar(255),
+    subject varchar(255),
+    primary key (id)
+);
+
+alter table reviews alter column id drop default;
+
+create unique index if not exists reviews_unique_idx on reviews (product_id, review_id);
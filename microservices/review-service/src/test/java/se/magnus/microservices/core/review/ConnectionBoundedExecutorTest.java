@@ -0,0 +1,50 @@
+package se.magnus.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+class ConnectionBoundedExecutorTest {
+
+    @Test
+    void runsAllCallsButNoMoreAtATimeThanPermits() {
+
+        ConnectionBoundedExecutor executor = new ConnectionBoundedExecutor(4, "test-");
+        Scheduler scheduler = Schedulers.fromExecutorService(executor, "test");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        // Far more calls than the 100 waiting ones a bounded elastic scheduler accepts
+        Long completed = Flux.range(0, 500)
+                .flatMap(i -> Mono.fromCallable(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(1);
+                    running.decrementAndGet();
+                    return i;
+                }).subscribeOn(scheduler), 500)
+                .count()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(500, completed);
+        assertTrue(maxRunning.get() <= 4, "Max running: " + maxRunning.get());
+        scheduler.dispose();
+    }
+
+    @Test
+    void rejectsCallsAfterShutdown() {
+
+        ConnectionBoundedExecutor executor = new ConnectionBoundedExecutor(1, "test-");
+        executor.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    }
+}
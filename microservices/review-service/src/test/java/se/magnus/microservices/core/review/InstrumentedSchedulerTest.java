@@ -0,0 +1,82 @@
+package se.magnus.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+class InstrumentedSchedulerTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void recordsWaitAndExecutionOfCalls() {
+
+        Scheduler scheduler = new InstrumentedScheduler(Schedulers.newBoundedElastic(2, 100, "test"), "test", registry);
+
+        Long completed = Flux.range(0, 20)
+                .flatMap(i -> Mono.fromCallable(() -> {
+                    Thread.sleep(5);
+                    return i;
+                }).subscribeOn(scheduler), 20)
+                .count()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(20, completed);
+        assertEquals(20, registry.get("app.scheduler.wait").tag("name", "test").timer().count());
+        assertEquals(20, registry.get("app.scheduler.execution").tag("name", "test").timer().count());
+        // 20 calls of 5 ms on 2 threads, the last ones waited for the first ones
+        assertTrue(registry.get("app.scheduler.wait").timer().max(TimeUnit.MILLISECONDS) >= 20);
+        assertEquals(0, registry.get("app.scheduler.queued").gauge().value());
+        scheduler.dispose();
+    }
+
+    @Test
+    void countsRejectedAndCancelledCallsOutOfTheQueue() throws InterruptedException {
+
+        Scheduler scheduler = new InstrumentedScheduler(Schedulers.newBoundedElastic(1, 1, "test"), "test", registry);
+
+        // One call runs, one waits and the rest are rejected
+        List<String> results = Flux.range(0, 5)
+                .flatMap(i -> Mono.fromCallable(() -> {
+                    Thread.sleep(50);
+                    return "completed";
+                }).subscribeOn(scheduler)
+                        .onErrorResume(RejectedExecutionException.class, e -> Mono.just("rejected")), 5)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        // The queue of the bounded elastic scheduler may also be full when the second call is scheduled
+        long rejected = results.stream().filter("rejected"::equals).count();
+        assertTrue(rejected >= 3, "Rejected: " + rejected);
+        assertEquals(rejected, registry.get("app.scheduler.rejected").counter().count());
+        assertEquals(0, registry.get("app.scheduler.queued").gauge().value());
+
+        // A call that times out while it waits leaves the queue
+        long started = registry.get("app.scheduler.wait").timer().count();
+        Mono.fromCallable(() -> {
+            Thread.sleep(200);
+            return 1;
+        }).subscribeOn(scheduler).subscribe();
+        while (registry.get("app.scheduler.wait").timer().count() == started) {
+            Thread.sleep(1);
+        }
+        Mono.fromCallable(() -> 2)
+                .subscribeOn(scheduler)
+                .timeout(Duration.ofMillis(10), Mono.just(0))
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(0, registry.get("app.scheduler.queued").gauge().value());
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,220 @@
+package se.magnus.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static reactor.core.publisher.Mono.just;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewPage;
+import se.magnus.microservices.core.review.persistence.DBTestBase;
+import se.magnus.microservices.core.review.persistence.ReactiveReviewRepository;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "app.grpc.port=0")
+@ActiveProfiles("r2dbc")
+class ReactiveReviewServiceApplicationTests extends DBTestBase {
+
+	@Autowired
+	private WebTestClient client;
+
+	@Autowired
+	private ReactiveReviewRepository repository;
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@BeforeEach
+	void setupDb() {
+		repository.deleteAll().block();
+	}
+
+	@Test
+	void getReviewsByProductId() {
+
+		int productId = 1;
+
+		postAndVerifyReview(productId, 1, OK);
+		postAndVerifyReview(productId, 2, OK);
+		postAndVerifyReview(productId, 3, OK);
+
+		assertEquals(3, repository.findByProductId(productId).count().block());
+
+		getAndVerifyReviewsByProductId("?productId=" + productId, OK)
+				.jsonPath("$.length()").isEqualTo(3)
+				.jsonPath("$[2].productId").isEqualTo(productId)
+				.jsonPath("$[2].reviewId").isEqualTo(3);
+	}
+
+	@Test
+	void getReviewsPageByPage() {
+
+		int productId = 1;
+
+		for (int reviewId : new int[] { 5, 1, 3, 2, 4 }) {
+			postAndVerifyReview(productId, reviewId, OK);
+		}
+
+		ReviewPage page = getReviewPage(productId, 2, null);
+		assertEquals(List.of(1, 2), page.getReviews().stream().map(Review::getReviewId).toList());
+		assertNotNull(page.getNextCursor());
+
+		page = getReviewPage(productId, 2, page.getNextCursor());
+		assertEquals(List.of(3, 4), page.getReviews().stream().map(Review::getReviewId).toList());
+
+		page = getReviewPage(productId, 2, page.getNextCursor());
+		assertEquals(List.of(5), page.getReviews().stream().map(Review::getReviewId).toList());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void getReviewsWithMatchingETagIsNotModified() {
+
+		int productId = 1;
+
+		postAndVerifyReview(productId, 1, OK);
+
+		String etag = client.get()
+				.uri("/review?productId=" + productId)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.returnResult(String.class)
+				.getResponseHeaders().getETag();
+		assertNotNull(etag);
+
+		client.get()
+				.uri("/review?productId=" + productId)
+				.accept(APPLICATION_JSON)
+				.ifNoneMatch(etag)
+				.exchange()
+				.expectStatus().isEqualTo(NOT_MODIFIED)
+				.expectBody().isEmpty();
+	}
+
+	@Test
+	void createReviewsInBatchIsAllOrNone() {
+
+		List<Review> reviews = List.of(
+				new Review(1, 1, "Author 1", "Subject 1", "Content 1", "SA"),
+				new Review(1, 2, "Author 2", "Subject 2", "Content 2", "SA"),
+				new Review(1, 1, "Author 3", "Subject 3", "Content 3", "SA"));
+
+		client.post()
+				.uri("/review/batch")
+				.bodyValue(reviews)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(UNPROCESSABLE_ENTITY);
+
+		assertEquals(0, repository.count().block());
+
+		client.post()
+				.uri("/review/batch")
+				.bodyValue(reviews.subList(0, 2))
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2);
+
+		assertEquals(2, repository.count().block());
+	}
+
+	@Test
+	void duplicateError() {
+
+		postAndVerifyReview(1, 1, OK)
+				.jsonPath("$.productId").isEqualTo(1)
+				.jsonPath("$.reviewId").isEqualTo(1);
+
+		postAndVerifyReview(1, 1, UNPROCESSABLE_ENTITY)
+				.jsonPath("$.path").isEqualTo("/review")
+				.jsonPath("$.message").isEqualTo("Duplicate key, Product Id: 1, Review Id:1");
+
+		assertEquals(1, repository.count().block());
+	}
+
+	@Test
+	void idsAreAllocatedFromBlocksOfTheSequence() {
+
+		int productId = 1;
+		long sequenceBefore = lastSequenceValue();
+
+		postAndVerifyReview(productId, 1, OK);
+		postAndVerifyReview(productId, 2, OK);
+		postAndVerifyReview(productId, 3, OK);
+
+		// At most one new block of 50 ids, not one per insert
+		assertTrue(lastSequenceValue() - sequenceBefore <= 50);
+		assertEquals(3, repository.findByProductId(productId).map(entity -> entity.getId()).distinct().count()
+				.block());
+	}
+
+	@Test
+	void deleteReviews() {
+
+		int productId = 1;
+
+		postAndVerifyReview(productId, 1, OK);
+		postAndVerifyReview(productId, 2, OK);
+
+		client.delete()
+				.uri("/review?productId=" + productId)
+				.exchange()
+				.expectStatus().isEqualTo(OK);
+
+		assertEquals(0, repository.findByProductId(productId).count().block());
+	}
+
+	private long lastSequenceValue() {
+		return databaseClient.sql("select last_value from reviews_seq").map(row -> row.get(0, Long.class)).one()
+				.block();
+	}
+
+	private ReviewPage getReviewPage(int productId, int limit, String after) {
+		return client.get()
+				.uri("/review?productId=" + productId + "&limit=" + limit + (after != null ? "&after=" + after : ""))
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectBody(ReviewPage.class)
+				.returnResult().getResponseBody();
+	}
+
+	private WebTestClient.BodyContentSpec getAndVerifyReviewsByProductId(String productIdQuery,
+			HttpStatus expectedStatus) {
+		return client.get()
+				.uri("/review" + productIdQuery)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(expectedStatus)
+				.expectHeader().contentType(APPLICATION_JSON)
+				.expectBody();
+	}
+
+	private WebTestClient.BodyContentSpec postAndVerifyReview(int productId, int reviewId, HttpStatus expectedStatus) {
+		Review review = new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId,
+				"Content " + reviewId, "SA");
+		return client.post()
+				.uri("/review")
+				.body(just(review), Review.class)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(expectedStatus)
+				.expectHeader().contentType(APPLICATION_JSON)
+				.expectBody();
+	}
+}
@@ -0,0 +1,73 @@
+package se.magnus.microservices.core.review;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewService;
+import se.magnus.api.exceptions.InvalidInputException;
+import se.magnus.microservices.core.review.persistence.DBTestBase;
+import se.magnus.microservices.core.review.persistence.ReviewRepository;
+
+@SpringBootTest(properties = {
+	"app.grpc.port=0",
+	"app.review.insert-batch.enabled=true",
+	"app.review.insert-batch.max-delay=100ms"})
+class ReviewInsertBatchingApplicationTests extends DBTestBase {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository repository;
+
+	@BeforeEach
+	void setupDb() {
+		repository.deleteAll();
+	}
+
+	@Test
+	void concurrentCreatesAreAllSaved() {
+
+		List<Review> created = Flux.range(1, 120)
+				.flatMap(reviewId -> service.createReview(review(1, reviewId)), 120)
+				.collectList()
+				.block(Duration.ofSeconds(30));
+
+		assertEquals(120, created.size());
+		assertEquals(120, repository.findReviewsByProductId(1).size());
+	}
+
+	@Test
+	void duplicateKeyOnlyFailsItsOwnCaller() {
+
+		service.createReview(review(1, 1)).block(Duration.ofSeconds(10));
+
+		// Sent together, so they are saved in the same batch
+		Map<String, Long> results = Flux.just(review(1, 1), review(1, 2), review(1, 3), review(1, 2))
+				.flatMap(review -> service.createReview(review)
+						.map(created -> "created")
+						.onErrorResume(InvalidInputException.class, e -> Mono.just("duplicate")))
+				.collectList()
+				.block(Duration.ofSeconds(10))
+				.stream()
+				.collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+		assertEquals(Map.of("created", 2L, "duplicate", 2L), results);
+		assertEquals(3, repository.findReviewsByProductId(1).size());
+	}
+
+	private Review review(int productId, int reviewId) {
+		return new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId, "SA");
+	}
+}
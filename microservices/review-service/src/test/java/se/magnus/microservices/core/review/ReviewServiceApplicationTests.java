@@ -1,11 +1,14 @@
 package se.magnus.microservices.core.review;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.core.publisher.Mono.just;
 
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,10 +16,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import se.magnus.api.core.review.Review;
+import se.magnus.api.core.review.ReviewPage;
 import se.magnus.microservices.core.review.persistence.DBTestBase;
 import se.magnus.microservices.core.review.persistence.ReviewRepository;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "app.grpc.port=0")
 class ReviewServiceApplicationTests extends DBTestBase {
 
 	@Autowired
@@ -35,13 +39,13 @@ class ReviewServiceApplicationTests extends DBTestBase {
 
 		int productId = 1;
 
-		assertEquals(0, repository.findByProductId(productId).size());
+		assertEquals(0, repository.findReviewsByProductId(productId).size());
 
 		postAndVerifyReview(productId, 1, OK);
 		postAndVerifyReview(productId, 2, OK);
 		postAndVerifyReview(productId, 3, OK);
 
-		assertEquals(3, repository.findByProductId(productId).size());
+		assertEquals(3, repository.findReviewsByProductId(productId).size());
 
 		getAndVerifyReviewsByProductId(productId, OK)
 				.jsonPath("$.length()").isEqualTo(3)
@@ -49,6 +53,103 @@ class ReviewServiceApplicationTests extends DBTestBase {
 				.jsonPath("$[2].reviewId").isEqualTo(3);
 	}
 
+	@Test
+	void getReviewsPageByPage() {
+
+		int productId = 1;
+
+		for (int reviewId : new int[] { 5, 1, 3, 2, 4 }) {
+			postAndVerifyReview(productId, reviewId, OK);
+		}
+
+		ReviewPage page = getReviewPage(productId, 2, null);
+		assertEquals(List.of(1, 2), page.getReviews().stream().map(Review::getReviewId).toList());
+		assertNotNull(page.getNextCursor());
+
+		page = getReviewPage(productId, 2, page.getNextCursor());
+		assertEquals(List.of(3, 4), page.getReviews().stream().map(Review::getReviewId).toList());
+
+		page = getReviewPage(productId, 2, page.getNextCursor());
+		assertEquals(List.of(5), page.getReviews().stream().map(Review::getReviewId).toList());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void getReviewPageInvalidCursor() {
+
+		getAndVerifyReviewsByProductId("?productId=1&limit=2&after=no-cursor", UNPROCESSABLE_ENTITY)
+				.jsonPath("$.message").isEqualTo("Invalid cursor: no-cursor");
+
+		getAndVerifyReviewsByProductId("?productId=1&limit=0", UNPROCESSABLE_ENTITY)
+				.jsonPath("$.message").isEqualTo("Invalid limit: 0, must be between 1 and 1000");
+	}
+
+	@Test
+	void getReviewsWithMatchingETagIsNotModified() {
+
+		int productId = 1;
+
+		postAndVerifyReview(productId, 1, OK);
+
+		String etag = client.get()
+				.uri("/review?productId=" + productId)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.returnResult(String.class)
+				.getResponseHeaders().getETag();
+		assertNotNull(etag);
+
+		client.get()
+				.uri("/review?productId=" + productId)
+				.accept(APPLICATION_JSON)
+				.ifNoneMatch(etag)
+				.exchange()
+				.expectStatus().isEqualTo(NOT_MODIFIED)
+				.expectBody().isEmpty();
+
+		postAndVerifyReview(productId, 2, OK);
+
+		client.get()
+				.uri("/review?productId=" + productId)
+				.accept(APPLICATION_JSON)
+				.ifNoneMatch(etag)
+				.exchange()
+				.expectStatus().isEqualTo(OK);
+	}
+
+	@Test
+	void getReviewsByProductIds() {
+
+		postAndVerifyReview(1, 1, OK);
+		postAndVerifyReview(1, 2, OK);
+		postAndVerifyReview(2, 1, OK);
+		postAndVerifyReview(3, 1, OK);
+
+		getAndVerifyReviewsByProductId("?productIds=1,2", OK)
+				.jsonPath("$.length()").isEqualTo(3);
+	}
+
+	@Test
+	void createReviewsInBatch() {
+
+		List<Review> reviews = List.of(
+				new Review(1, 1, "Author 1", "Subject 1", "Content 1", "SA"),
+				new Review(1, 2, "Author 2", "Subject 2", "Content 2", "SA"),
+				new Review(1, 3, "Author 3", "Subject 3", "Content 3", "SA"));
+
+		client.post()
+				.uri("/review/batch")
+				.bodyValue(reviews)
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(3);
+
+		assertEquals(3, repository.findReviewsByProductId(1).size());
+	}
+
 	@Test
 	void duplicateError() {
 
@@ -77,10 +178,10 @@ class ReviewServiceApplicationTests extends DBTestBase {
 		int reviewId = 1;
 
 		postAndVerifyReview(productId, reviewId, OK);
-		assertEquals(1, repository.findByProductId(productId).size());
+		assertEquals(1, repository.findReviewsByProductId(productId).size());
 
 		deleteAndVerifyReviewsByProductId(productId, OK);
-		assertEquals(0, repository.findByProductId(productId).size());
+		assertEquals(0, repository.findReviewsByProductId(productId).size());
 
 		deleteAndVerifyReviewsByProductId(productId, OK);
 	}
@@ -118,6 +219,16 @@ class ReviewServiceApplicationTests extends DBTestBase {
 				.jsonPath("$.message").isEqualTo("Invalid productId: " + productIdInvalid);
 	}
 
+	private ReviewPage getReviewPage(int productId, int limit, String after) {
+		return client.get()
+				.uri("/review?productId=" + productId + "&limit=" + limit + (after != null ? "&after=" + after : ""))
+				.accept(APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(OK)
+				.expectBody(ReviewPage.class)
+				.returnResult().getResponseBody();
+	}
+
 	private WebTestClient.BodyContentSpec getAndVerifyReviewsByProductId(int productId, HttpStatus expectedStatus) {
 		return getAndVerifyReviewsByProductId("?productId=" + productId, expectedStatus);
 	}
@@ -5,21 +5,27 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.transaction.annotation.Transactional;
+import se.magnus.api.core.review.Review;
 import se.magnus.microservices.core.review.persistence.ReviewEntity;
 import se.magnus.microservices.core.review.persistence.ReviewRepository;
 
 @DataJpaTest
 @Transactional(propagation = NOT_SUPPORTED)
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The instrumented services are component scanned too, but the metrics aren't auto-configured in a slice test
+@Import(SimpleMeterRegistry.class)
 public class ReviewRepositoryTest extends DBTestBase {
 
     @Autowired
@@ -66,11 +72,42 @@ public class ReviewRepositoryTest extends DBTestBase {
     }
 
     @Test
-    void getByProductId() {
-        List<ReviewEntity> entityList = repository.findByProductId(savedEntity.getProductId());
+    void deleteByProductId() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
 
-        assertThat(entityList, hasSize(1));
-        assertEqualsReview(savedEntity, entityList.get(0));
+        assertEquals(2, repository.deleteByProductId(1));
+        assertEquals(0, repository.findReviewsByProductId(1).size());
+        assertEquals(1, repository.findReviewsByProductId(2).size());
+    }
+
+    @Test
+    void getReviewsByProductId() {
+        List<Review> reviews = repository.findReviewsByProductId(savedEntity.getProductId());
+
+        assertThat(reviews, hasSize(1));
+        Review review = reviews.get(0);
+        assertEquals(savedEntity.getProductId(), review.getProductId());
+        assertEquals(savedEntity.getReviewId(), review.getReviewId());
+        assertEquals(savedEntity.getAuthor(), review.getAuthor());
+        assertEquals(savedEntity.getSubject(), review.getSubject());
+        assertEquals(savedEntity.getContent(), review.getContent());
+        assertNull(review.getServiceAddress());
+    }
+
+    @Test
+    void getReviewPageByProductId() {
+        repository.save(new ReviewEntity(1, 4, "a", "s", "c"));
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+
+        List<Review> page = repository.findReviewPageByProductId(1, Integer.MIN_VALUE, Limit.of(2));
+        assertEquals(List.of(2, 3), page.stream().map(Review::getReviewId).toList());
+
+        page = repository.findReviewPageByProductId(1, 3, Limit.of(2));
+        assertEquals(List.of(4), page.stream().map(Review::getReviewId).toList());
+
+        assertThat(repository.findReviewsByProductIdIn(List.of(1, 2)), hasSize(4));
     }
 
     @Test
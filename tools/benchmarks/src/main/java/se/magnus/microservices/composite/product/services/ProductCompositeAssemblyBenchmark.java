@@ -0,0 +1,56 @@
+package se.magnus.microservices.composite.product.services;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.magnus.api.composite.product.ProductAggregate;
+import se.magnus.api.core.product.Product;
+import se.magnus.api.core.recommendation.Recommendation;
+import se.magnus.api.core.review.Review;
+import se.magnus.tools.benchmarks.BenchmarkData;
+
+/*
+ * ProductCompositeServiceImpl.createProductAggregate, i.e. the assembly of an aggregate from the
+ * responses of the core services, with the given number of recommendations and reviews.
+ *
+ * Placed in the package of the composite service, since the method is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductCompositeAssemblyBenchmark {
+
+    private static final String COMPOSITE_ADDRESS = "composite-host/127.0.0.1:7000";
+
+    @Param({"0", "10", "1000", "10000"})
+    private int size;
+
+    private Product product;
+    private List<Recommendation> recommendations;
+    private List<Review> reviews;
+
+    @Setup
+    public void setUp() {
+        product = BenchmarkData.product();
+        recommendations = BenchmarkData.recommendations(size);
+        reviews = BenchmarkData.reviews(size);
+    }
+
+    @Benchmark
+    public ProductAggregate createProductAggregate() {
+        return ProductCompositeServiceImpl.createProductAggregate(product, recommendations, reviews, COMPOSITE_ADDRESS);
+    }
+}
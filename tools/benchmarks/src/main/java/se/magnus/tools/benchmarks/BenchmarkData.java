@@ -0,0 +1,92 @@
+package se.magnus.tools.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import se.magnus.api.composite.product.ProductAggregate;
+import se.magnus.api.composite.product.RecommendationSummary;
+import se.magnus.api.composite.product.ReviewSummary;
+import se.magnus.api.composite.product.ServiceAddresses;
+import se.magnus.api.core.product.Product;
+import se.magnus.api.core.recommendation.Recommendation;
+import se.magnus.api.core.review.Review;
+import se.magnus.microservices.core.product.persistence.ProductEntity;
+import se.magnus.microservices.core.recommendation.persistence.RecommendationEntity;
+import se.magnus.microservices.core.review.persistence.ReviewEntity;
+
+/*
+ * Test data shared by the benchmarks, sized by the number of recommendations and reviews.
+ * Texts are of a realistic length, so that the JSON benchmarks aren't dominated by the field names.
+ */
+public final class BenchmarkData {
+
+    public static final int PRODUCT_ID = 1;
+
+    private static final String ADDRESS = "benchmark-host/127.0.0.1:8080";
+    private static final String CONTENT = "Good value for the money, arrived on time and works as described. Would buy again.";
+
+    private BenchmarkData() {
+    }
+
+    public static Product product() {
+        return new Product(PRODUCT_ID, "Product " + PRODUCT_ID, 100, ADDRESS);
+    }
+
+    public static List<Product> products(int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            products.add(new Product(i, "Product " + i, i % 1000, ADDRESS));
+        }
+        return products;
+    }
+
+    public static List<ProductEntity> productEntities(int size) {
+        List<ProductEntity> entities = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            entities.add(new ProductEntity(i, "Product " + i, i % 1000));
+        }
+        return entities;
+    }
+
+    public static List<Recommendation> recommendations(int size) {
+        List<Recommendation> recommendations = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            recommendations.add(new Recommendation(PRODUCT_ID, i, "Author " + i, i % 6, CONTENT, ADDRESS));
+        }
+        return recommendations;
+    }
+
+    public static List<RecommendationEntity> recommendationEntities(int size) {
+        List<RecommendationEntity> entities = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            entities.add(new RecommendationEntity(PRODUCT_ID, i, "Author " + i, i % 6, CONTENT));
+        }
+        return entities;
+    }
+
+    public static List<Review> reviews(int size) {
+        List<Review> reviews = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            reviews.add(new Review(PRODUCT_ID, i, "Author " + i, "Subject " + i, CONTENT, ADDRESS));
+        }
+        return reviews;
+    }
+
+    public static List<ReviewEntity> reviewEntities(int size) {
+        List<ReviewEntity> entities = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            entities.add(new ReviewEntity(PRODUCT_ID, i, "Author " + i, "Subject " + i, CONTENT));
+        }
+        return entities;
+    }
+
+    public static ProductAggregate productAggregate(int size) {
+        List<RecommendationSummary> recommendations = new ArrayList<>(size);
+        List<ReviewSummary> reviews = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            recommendations.add(new RecommendationSummary(i, "Author " + i, i % 6, CONTENT));
+            reviews.add(new ReviewSummary(i, "Author " + i, "Subject " + i, CONTENT));
+        }
+        return new ProductAggregate(PRODUCT_ID, "Product " + PRODUCT_ID, 100, recommendations, reviews,
+                new ServiceAddresses(ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+    }
+}
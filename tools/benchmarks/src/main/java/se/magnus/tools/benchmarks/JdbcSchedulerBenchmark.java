@@ -0,0 +1,104 @@
+package se.magnus.tools.benchmarks;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import se.magnus.microservices.core.review.ConnectionBoundedExecutor;
+
+/*
+ * 1000 concurrent callers of a blocking query on the jdbcScheduler of the review service, in its
+ * bounded-elastic mode (10 threads, 100 waiting calls) and its virtual-threads mode (10 calls at a
+ * time, any number waiting). The query takes a connection from a pool of 10, like the default
+ * Hikari pool, and holds it for queryMillis, there is no database involved.
+ *
+ * The sampled times are the latencies of single calls, including the calls rejected by the
+ * bounded-elastic scheduler, which fail at once. The completed and rejected counters tell them apart.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(1000)
+@State(Scope.Benchmark)
+public class JdbcSchedulerBenchmark {
+
+    private static final int CONNECTIONS = 10;
+
+    @Param({"bounded-elastic", "virtual-threads"})
+    private String mode;
+
+    @Param({"5"})
+    private int queryMillis;
+
+    private Semaphore connections;
+    private Scheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        connections = new Semaphore(CONNECTIONS);
+        scheduler = mode.equals("bounded-elastic")
+                ? Schedulers.newBoundedElastic(CONNECTIONS, 100, "jdbc-pool")
+                : Schedulers.fromExecutorService(new ConnectionBoundedExecutor(CONNECTIONS, "jdbc-"), "jdbc-pool");
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Calls {
+
+        public long completed;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            completed = 0;
+            rejected = 0;
+        }
+    }
+
+    @Benchmark
+    public Object call(Calls calls) {
+        try {
+            Integer result = Mono.fromCallable(this::query).subscribeOn(scheduler).block();
+            calls.completed++;
+            return result;
+
+        } catch (RejectedExecutionException ree) {
+            calls.rejected++;
+            return ree;
+        }
+    }
+
+    private Integer query() throws InterruptedException {
+        connections.acquire();
+        try {
+            Thread.sleep(queryMillis);
+            return queryMillis;
+        } finally {
+            connections.release();
+        }
+    }
+}
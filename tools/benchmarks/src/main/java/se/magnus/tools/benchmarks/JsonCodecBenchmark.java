@@ -0,0 +1,98 @@
+package se.magnus.tools.benchmarks;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import se.magnus.api.composite.product.ProductAggregate;
+import se.magnus.api.core.recommendation.Recommendation;
+import se.magnus.api.core.review.Review;
+
+/*
+ * Jackson serialization and deserialization of a product aggregate with the given number of
+ * recommendations and reviews, and of lists of reviews and recommendations, i.e. the bodies sent
+ * between the composite and the core services.
+ *
+ * The ObjectMapper is configured like the one Spring Boot creates for WebFlux.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+    @Param({"0", "10", "1000", "10000"})
+    private int size;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private JavaType reviewListType;
+    private JavaType recommendationListType;
+
+    private ProductAggregate productAggregate;
+    private List<Review> reviews;
+    private List<Recommendation> recommendations;
+
+    private byte[] productAggregateJson;
+    private byte[] reviewsJson;
+    private byte[] recommendationsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        reviewListType = mapper.getTypeFactory().constructCollectionType(List.class, Review.class);
+        recommendationListType = mapper.getTypeFactory().constructCollectionType(List.class, Recommendation.class);
+
+        productAggregate = BenchmarkData.productAggregate(size);
+        reviews = BenchmarkData.reviews(size);
+        recommendations = BenchmarkData.recommendations(size);
+
+        productAggregateJson = mapper.writeValueAsBytes(productAggregate);
+        reviewsJson = mapper.writeValueAsBytes(reviews);
+        recommendationsJson = mapper.writeValueAsBytes(recommendations);
+    }
+
+    @Benchmark
+    public byte[] serializeProductAggregate() throws IOException {
+        return mapper.writeValueAsBytes(productAggregate);
+    }
+
+    @Benchmark
+    public ProductAggregate deserializeProductAggregate() throws IOException {
+        return mapper.readValue(productAggregateJson, ProductAggregate.class);
+    }
+
+    @Benchmark
+    public byte[] serializeReviews() throws IOException {
+        return mapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<Review> deserializeReviews() throws IOException {
+        return mapper.readValue(reviewsJson, reviewListType);
+    }
+
+    @Benchmark
+    public byte[] serializeRecommendations() throws IOException {
+        return mapper.writeValueAsBytes(recommendations);
+    }
+
+    @Benchmark
+    public List<Recommendation> deserializeRecommendations() throws IOException {
+        return mapper.readValue(recommendationsJson, recommendationListType);
+    }
+}
@@ -0,0 +1,104 @@
+package se.magnus.tools.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.magnus.api.core.product.Product;
+import se.magnus.api.core.recommendation.Recommendation;
+import se.magnus.api.core.review.Review;
+import se.magnus.microservices.core.product.persistence.ProductEntity;
+import se.magnus.microservices.core.product.services.ProductMapper;
+import se.magnus.microservices.core.product.services.ProductMapperImpl;
+import se.magnus.microservices.core.recommendation.persistence.RecommendationEntity;
+import se.magnus.microservices.core.recommendation.services.RecommendationMapper;
+import se.magnus.microservices.core.recommendation.services.RecommendationMapperImpl;
+import se.magnus.microservices.core.review.persistence.ReviewEntity;
+import se.magnus.microservices.core.review.services.ReviewMapper;
+import se.magnus.microservices.core.review.services.ReviewMapperImpl;
+
+/*
+ * The MapStruct mappers of the core services, in both directions, for lists of the given size.
+ * ProductMapper has no list methods, so its benchmarks map the products one by one. The generated
+ * implementations are used directly, as they are when injected by Spring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    @Param({"0", "10", "1000", "10000"})
+    private int size;
+
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private final RecommendationMapper recommendationMapper = new RecommendationMapperImpl();
+    private final ReviewMapper reviewMapper = new ReviewMapperImpl();
+
+    private List<Product> products;
+    private List<ProductEntity> productEntities;
+    private List<Recommendation> recommendations;
+    private List<RecommendationEntity> recommendationEntities;
+    private List<Review> reviews;
+    private List<ReviewEntity> reviewEntities;
+
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.products(size);
+        productEntities = BenchmarkData.productEntities(size);
+        recommendations = BenchmarkData.recommendations(size);
+        recommendationEntities = BenchmarkData.recommendationEntities(size);
+        reviews = BenchmarkData.reviews(size);
+        reviewEntities = BenchmarkData.reviewEntities(size);
+    }
+
+    @Benchmark
+    public List<Product> productEntityToApi() {
+        List<Product> result = new ArrayList<>(productEntities.size());
+        for (ProductEntity entity : productEntities) {
+            result.add(productMapper.entityToApi(entity));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<ProductEntity> productApiToEntity() {
+        List<ProductEntity> result = new ArrayList<>(products.size());
+        for (Product product : products) {
+            result.add(productMapper.apiToEntity(product));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Recommendation> recommendationEntityListToApiList() {
+        return recommendationMapper.entityListToApiList(recommendationEntities);
+    }
+
+    @Benchmark
+    public List<RecommendationEntity> recommendationApiListToEntityList() {
+        return recommendationMapper.apiListToEntityList(recommendations);
+    }
+
+    @Benchmark
+    public List<Review> reviewEntityListToApiList() {
+        return reviewMapper.entityListToApiList(reviewEntities);
+    }
+
+    @Benchmark
+    public List<ReviewEntity> reviewApiListToEntityList() {
+        return reviewMapper.apiListToEntityList(reviews);
+    }
+}
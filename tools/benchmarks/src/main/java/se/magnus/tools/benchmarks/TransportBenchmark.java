@@ -0,0 +1,146 @@
+package se.magnus.tools.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import se.magnus.api.core.review.Review;
+import se.magnus.api.grpc.ProductIdRequest;
+import se.magnus.api.grpc.ProtoMapper;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc.ReviewGrpcServiceImplBase;
+import se.magnus.api.grpc.ReviewGrpcServiceGrpc.ReviewGrpcServiceStub;
+import se.magnus.api.grpc.ReviewMessage;
+import se.magnus.util.grpc.ReactiveGrpc;
+import se.magnus.util.http.BinaryCodecCustomizer;
+
+/*
+ * Fetching the reviews of a product over loopback, the way the composite service does it: with a
+ * WebClient from a REST endpoint returning JSON or Smile, or as a server-streaming gRPC call with
+ * protobuf messages over a single multiplexed HTTP/2 connection.
+ *
+ * With concurrency > 1, that many calls are in flight at the same time. The WebClient then opens
+ * one HTTP/1.1 connection per concurrent call, while all gRPC calls share the one connection.
+ *
+ * The servers only encode the reviews, there is no database involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Param({"rest-json", "rest-smile", "grpc"})
+    private String transport;
+
+    @Param({"1", "16"})
+    private int concurrency;
+
+    private DisposableServer restServer;
+    private WebClient webClient;
+    private MediaType mediaType;
+
+    private Server grpcServer;
+    private ManagedChannel channel;
+    private ReviewGrpcServiceStub stub;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Review> reviews = BenchmarkData.reviews(size);
+
+        switch (transport) {
+            case "rest-json":
+            case "rest-smile":
+                boolean smile = transport.equals("rest-smile");
+                ObjectMapper mapper = smile ? Jackson2ObjectMapperBuilder.smile().build()
+                        : Jackson2ObjectMapperBuilder.json().build();
+                mediaType = smile ? BinaryCodecCustomizer.APPLICATION_SMILE : MediaType.APPLICATION_JSON;
+                restServer = HttpServer.create()
+                        .port(0)
+                        .route(routes -> routes.get("/review", (request, response) -> response
+                                .header(HttpHeaders.CONTENT_TYPE, mediaType.toString())
+                                .sendByteArray(Mono.fromCallable(() -> mapper.writeValueAsBytes(reviews)))))
+                        .bindNow();
+                webClient = WebClient.builder().baseUrl("http://localhost:" + restServer.port()).build();
+                break;
+
+            case "grpc":
+                ReviewGrpcServiceImplBase service = new ReviewGrpcServiceImplBase() {
+                    @Override
+                    public void getReviews(ProductIdRequest request, StreamObserver<ReviewMessage> responseObserver) {
+                        ReactiveGrpc.respond(Flux.fromIterable(reviews).map(ProtoMapper::toMessage), responseObserver);
+                    }
+                };
+                grpcServer = NettyServerBuilder.forPort(0).directExecutor().addService(service).build().start();
+                channel = NettyChannelBuilder.forAddress("localhost", grpcServer.getPort()).usePlaintext().directExecutor()
+                        .build();
+                stub = ReviewGrpcServiceGrpc.newStub(channel);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown transport: " + transport);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (restServer != null) {
+            restServer.disposeNow();
+        }
+        if (channel != null) {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (grpcServer != null) {
+            grpcServer.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public List<Review> getReviews() {
+        return Flux.range(0, concurrency)
+                .flatMap(i -> getReviewsOnce().collectList(), concurrency)
+                .blockLast();
+    }
+
+    private Flux<Review> getReviewsOnce() {
+        if (stub != null) {
+            return ReactiveGrpc.serverStreaming(stub, ReviewGrpcServiceStub::getReviews,
+                    ProtoMapper.productId(BenchmarkData.PRODUCT_ID))
+                    .map(ProtoMapper::toApi);
+        }
+        return webClient.get().uri("/review?productId=" + BenchmarkData.PRODUCT_ID)
+                .accept(mediaType)
+                .retrieve()
+                .bodyToFlux(Review.class);
+    }
+}
@@ -0,0 +1,103 @@
+package se.magnus.tools.benchmarks;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import se.magnus.api.core.review.Review;
+
+/*
+ * Encoding and decoding of a list of reviews, the largest body sent from a core service to the
+ * composite service, in the formats the core services support: JSON, Smile and CBOR, each with
+ * and without gzip compression.
+ *
+ * The CPU cost is what JMH measures, the size on the wire of each combination is printed when a
+ * trial starts, e.g.
+ *
+ *   Wire size: format=smile, gzip=false, size=1000: 148797 bytes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"0", "10", "1000", "10000"})
+    private int size;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper mapper;
+    private JavaType reviewListType;
+    private List<Review> reviews;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = mapper(format);
+        reviewListType = mapper.getTypeFactory().constructCollectionType(List.class, Review.class);
+        reviews = BenchmarkData.reviews(size);
+        encoded = encodeReviews();
+
+        System.out.printf("%nWire size: format=%s, gzip=%s, size=%d: %d bytes%n", format, gzip, size, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encodeReviews() throws IOException {
+        if (!gzip) {
+            return mapper.writeValueAsBytes(reviews);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            mapper.writeValue(gzipOut, reviews);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Review> decodeReviews() throws IOException {
+        if (!gzip) {
+            return mapper.readValue(encoded, reviewListType);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+            return mapper.readValue(in, reviewListType);
+        }
+    }
+
+    private static ObjectMapper mapper(String format) {
+        switch (format) {
+            case "json":
+                return Jackson2ObjectMapperBuilder.json().build();
+            case "smile":
+                return Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor":
+                return Jackson2ObjectMapperBuilder.cbor().build();
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package se.magnus.tools.loadgenerator;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import se.magnus.tools.loadgenerator.RequestMix.Operation;
+
+/*
+ * Records the latency and outcome of every measured request, per operation.
+ *
+ * Two latencies are recorded for each request:
+ *
+ *   corrected    from the time the request was scheduled to be sent until the response was received.
+ *                If the generator, or the system under test, falls behind the schedule, the time a
+ *                request waited to be sent is included, i.e. the result is corrected for coordinated
+ *                omission.
+ *   uncorrected  from the time the request actually was sent until the response was received.
+ *
+ * The two only differ when requests can't be sent on time, a large difference means that the
+ * uncorrected numbers hide queueing in the system under test.
+ *
+ * A request that is dropped in the open model, since too many requests already are outstanding, is
+ * recorded in the corrected latencies as if it had been sent and timed out, and counted as an
+ * error. Leaving it out would hide the worst latencies, the ones that made the requests pile up,
+ * the same way an uncorrected measurement does.
+ */
+public final class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    public LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * @param intendedStartNanos the time the request was scheduled to be sent, from System.nanoTime()
+     * @param actualStartNanos the time the request was sent
+     * @param endNanos the time the response, or error, was received
+     * @param status the HTTP status code, or -1 if no response was received
+     */
+    public void record(Operation operation, long intendedStartNanos, long actualStartNanos, long endNanos, int status) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.corrected.recordValue(toMicros(endNanos - intendedStartNanos));
+        operationStats.uncorrected.recordValue(toMicros(endNanos - actualStartNanos));
+        operationStats.statusCodes.computeIfAbsent(status, s -> new LongAdder()).increment();
+        if (status < 0 || status >= 500) {
+            operationStats.errors.increment();
+        }
+    }
+
+    /**
+     * Records a request that wasn't sent since too many requests already were outstanding.
+     *
+     * @param timeoutNanos the request timeout, recorded as the corrected latency of the request
+     */
+    public void recordDropped(Operation operation, long timeoutNanos) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.corrected.recordValue(toMicros(timeoutNanos));
+        operationStats.dropped.increment();
+        operationStats.errors.increment();
+    }
+
+    public long getDropped(Operation operation) {
+        return stats.get(operation).dropped.sum();
+    }
+
+    public Histogram getCorrected(Operation operation) {
+        return stats.get(operation).corrected;
+    }
+
+    public Histogram getUncorrected(Operation operation) {
+        return stats.get(operation).uncorrected;
+    }
+
+    public long getErrors(Operation operation) {
+        return stats.get(operation).errors.sum();
+    }
+
+    public Map<Integer, Long> getStatusCodes(Operation operation) {
+        Map<Integer, Long> result = new TreeMap<>();
+        stats.get(operation).statusCodes.forEach((status, count) -> result.put(status, count.sum()));
+        return result;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static final class OperationStats {
+        private final ConcurrentHistogram corrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final ConcurrentHistogram uncorrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final ConcurrentMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+    }
+}
@@ -0,0 +1,282 @@
+package se.magnus.tools.loadgenerator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import se.magnus.api.composite.product.ProductAggregate;
+import se.magnus.api.composite.product.RecommendationSummary;
+import se.magnus.api.composite.product.ReviewSummary;
+import se.magnus.api.core.review.Review;
+import se.magnus.tools.loadgenerator.LoadGeneratorSettings.Api;
+import se.magnus.tools.loadgenerator.LoadGeneratorSettings.Model;
+import se.magnus.tools.loadgenerator.RequestMix.Operation;
+
+/*
+ * Sends a mix of create, get and delete requests to the product composite API and reports the
+ * latency distribution of the responses, see LoadGeneratorSettings for the options, e.g.
+ *
+ *   java -jar tools/load-generator/target/load-generator-1.0.0-SNAPSHOT.jar --rps=200 --duration=2m
+ *
+ * Two load models are supported:
+ *
+ *   open    requests are scheduled at a fixed rate and sent without waiting for earlier responses,
+ *           like independent users do. A slow response doesn't delay the next request, so queueing
+ *           in the system under test shows up in the latencies. Latencies are measured from the
+ *           scheduled send time, i.e. corrected for coordinated omission, and requests dropped at
+ *           --max-outstanding are recorded as timed out, see LatencyRecorder.
+ *   closed  a fixed number of clients, each sending its next request when the previous response is
+ *           received. If --rps is given, each client is paced to its share of the rate and latencies
+ *           are measured from the scheduled send time, as in the open model. Without pacing, the
+ *           model measures throughput rather than latency.
+ *
+ * Requests sent during the warm-up aren't recorded.
+ */
+public final class LoadGenerator {
+
+    private static final String PATH = "/product-composite";
+    private static final String REVIEW_PATH = "/review";
+
+    private final LoadGeneratorSettings settings;
+    private final URI baseUri;
+    private final ObjectMapper mapper;
+    private final HttpClient client;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    public LoadGenerator(LoadGeneratorSettings settings, URI baseUri, ObjectMapper mapper) {
+        this.settings = settings;
+        this.baseUri = baseUri;
+        this.mapper = mapper;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(settings.getTimeout())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorSettings settings = LoadGeneratorSettings.parse(args);
+        ObjectMapper mapper = new ObjectMapper();
+
+        StubCompositeServer stub = settings.isStub()
+                ? StubCompositeServer.start(0, settings.getStubLatency(), mapper) : null;
+        try {
+            URI baseUri = stub != null
+                    ? URI.create("http://localhost:" + stub.getPort())
+                    : URI.create("http://" + settings.getHost() + ":" + settings.getPort());
+
+            LoadReport report = new LoadGenerator(settings, baseUri, mapper).run();
+
+            report.write(settings.getReport(), mapper);
+            if (settings.getHgrmDir() != null) {
+                report.writeHistograms(settings.getHgrmDir());
+            }
+            report.printSummary(System.out);
+            System.out.println("Report written to " + settings.getReport().toAbsolutePath());
+
+        } finally {
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    public LoadReport run() throws InterruptedException {
+        if (settings.isPrepopulate()) {
+            prepopulate();
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + settings.getWarmup().toNanos();
+        long end = measureFrom + settings.getDuration().toNanos();
+
+        if (settings.getModel() == Model.OPEN) {
+            runOpen(start, measureFrom, end);
+        } else {
+            runClosed(start, measureFrom, end);
+        }
+        return new LoadReport(settings, recorder, end - measureFrom);
+    }
+
+    public LatencyRecorder getRecorder() {
+        return recorder;
+    }
+
+    private void runOpen(long start, long measureFrom, long end) throws InterruptedException {
+        int maxOutstanding = settings.getMaxOutstanding();
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.getRps();
+
+        for (long i = 0; ; i++) {
+            // Computed from the start, rather than from the previous send, so the schedule doesn't drift
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            sleepUntil(intended);
+
+            boolean measured = intended >= measureFrom;
+            Operation operation = settings.getMix().next();
+            if (!outstanding.tryAcquire()) {
+                if (measured) {
+                    recorder.recordDropped(operation, settings.getTimeout().toNanos());
+                }
+                continue;
+            }
+            sendAsync(operation, intended, measured).whenComplete((r, e) -> outstanding.release());
+        }
+
+        // Wait for the outstanding requests, they time out at the latest after the request timeout
+        long waitMillis = settings.getTimeout().toMillis() + 1000;
+        outstanding.tryAcquire(maxOutstanding, waitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runClosed(long start, long measureFrom, long end) throws InterruptedException {
+        int concurrency = settings.getConcurrency();
+        double intervalNanos = settings.getRps() > 0 ? concurrency * TimeUnit.SECONDS.toNanos(1) / settings.getRps() : 0;
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                // Spread the paced clients evenly over the interval
+                long first = start + (long) (worker * intervalNanos / concurrency);
+                done.add(CompletableFuture.runAsync(() -> runClient(first, intervalNanos, measureFrom, end), workers));
+            }
+            CompletableFuture.allOf(done.toArray(new CompletableFuture[0])).join();
+
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void runClient(long first, double intervalNanos, long measureFrom, long end) {
+        for (long i = 0; ; i++) {
+            long intended = intervalNanos > 0 ? first + (long) (i * intervalNanos) : System.nanoTime();
+            if (intended >= end) {
+                return;
+            }
+            sleepUntil(intended);
+            sendAsync(settings.getMix().next(), intended, intended >= measureFrom).join();
+        }
+    }
+
+    private CompletableFuture<Void> sendAsync(Operation operation, long intended, boolean measured) {
+        HttpRequest request = request(operation, randomProductId());
+        long actual = System.nanoTime();
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (measured) {
+                        int status = error == null ? response.statusCode() : -1;
+                        recorder.record(operation, intended, actual, System.nanoTime(), status);
+                    }
+                    return null;
+                });
+    }
+
+    private void prepopulate() throws InterruptedException {
+        Semaphore outstanding = new Semaphore(settings.getConcurrency());
+        for (int productId = settings.getFirstProductId(); productId <= settings.getLastProductId(); productId++) {
+            outstanding.acquire();
+            client.sendAsync(request(Operation.CREATE, productId), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((r, e) -> outstanding.release());
+        }
+        outstanding.acquire(settings.getConcurrency());
+    }
+
+    private HttpRequest request(Operation operation, int productId) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(settings.getTimeout());
+
+        if (settings.getApi() == Api.REVIEW) {
+            return reviewRequest(builder, operation, productId);
+        }
+        switch (operation) {
+            case CREATE:
+                return builder.uri(baseUri.resolve(PATH))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(productBody(productId)))
+                        .build();
+            case GET:
+                return builder.uri(baseUri.resolve(PATH + "/" + productId))
+                        .header("Accept", "application/json")
+                        .GET()
+                        .build();
+            case DELETE:
+                return builder.uri(baseUri.resolve(PATH + "/" + productId)).DELETE().build();
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private HttpRequest reviewRequest(HttpRequest.Builder builder, Operation operation, int productId) {
+        URI uri = baseUri.resolve(REVIEW_PATH + "?productId=" + productId);
+
+        switch (operation) {
+            case CREATE:
+                return builder.uri(baseUri.resolve(REVIEW_PATH + "/batch"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(reviewsBody(productId)))
+                        .build();
+            case GET:
+                return builder.uri(uri).header("Accept", "application/json").GET().build();
+            case DELETE:
+                return builder.uri(uri).DELETE().build();
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private byte[] reviewsBody(int productId) {
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 1; i <= settings.getReviews(); i++) {
+            reviews.add(new Review(productId, i, "author " + i, "subject " + i, "content " + i, null));
+        }
+
+        try {
+            return mapper.writeValueAsBytes(reviews);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] productBody(int productId) {
+        List<RecommendationSummary> recommendations = new ArrayList<>();
+        for (int i = 1; i <= settings.getRecommendations(); i++) {
+            recommendations.add(new RecommendationSummary(i, "author " + i, i % 6, "content " + i));
+        }
+        List<ReviewSummary> reviews = new ArrayList<>();
+        for (int i = 1; i <= settings.getReviews(); i++) {
+            reviews.add(new ReviewSummary(i, "author " + i, "subject " + i, "content " + i));
+        }
+
+        try {
+            return mapper.writeValueAsBytes(
+                    new ProductAggregate(productId, "name " + productId, productId, recommendations, reviews, null));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private int randomProductId() {
+        return ThreadLocalRandom.current().nextInt(settings.getFirstProductId(), settings.getLastProductId() + 1);
+    }
+
+    private static void sleepUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package se.magnus.tools.loadgenerator;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Settings of a load test run, given on the command line as --name=value.
+ *
+ *   --host, --port        the product composite service, default localhost:7000
+ *   --api                 composite, or review to send the requests to the review service alone,
+ *                         e.g. to compare its persistence modes. Create sends the reviews of a
+ *                         product to /review/batch, get and delete use /review?productId=
+ *   --model               open (requests are started at a fixed rate, regardless of responses) or
+ *                         closed (a fixed number of clients, each waiting for its response)
+ *   --rps                 target requests per second, required for open, optional pacing for closed
+ *   --concurrency         number of clients in the closed model
+ *   --max-outstanding     requests in flight in the open model before new ones are dropped
+ *   --duration, --warmup  length of the measured run and of the unmeasured warm-up before it
+ *   --mix                 weights of the operations, e.g. create:10,get:80,delete:10
+ *   --product-ids         range of product ids to use, e.g. 1-1000
+ *   --recommendations, --reviews  number of recommendations and reviews per created product
+ *   --prepopulate         create all products in the range before the run
+ *   --timeout             request timeout
+ *   --report              path of the JSON report, --hgrm-dir directory for .hgrm files
+ *   --stub                run against an in-process stub of the composite service instead
+ *   --stub-latency        latency added by the stub to each request
+ */
+public final class LoadGeneratorSettings {
+
+    public enum Model { OPEN, CLOSED }
+
+    public enum Api { COMPOSITE, REVIEW }
+
+    private final String host;
+    private final int port;
+    private final Api api;
+    private final Model model;
+    private final double rps;
+    private final int concurrency;
+    private final int maxOutstanding;
+    private final Duration duration;
+    private final Duration warmup;
+    private final RequestMix mix;
+    private final int firstProductId;
+    private final int lastProductId;
+    private final int recommendations;
+    private final int reviews;
+    private final boolean prepopulate;
+    private final Duration timeout;
+    private final Path report;
+    private final Path hgrmDir;
+    private final boolean stub;
+    private final Duration stubLatency;
+
+    private LoadGeneratorSettings(Map<String, String> args) {
+        this.host = args.getOrDefault("host", "localhost");
+        this.port = Integer.parseInt(args.getOrDefault("port", "7000"));
+        this.api = Api.valueOf(args.getOrDefault("api", "composite").toUpperCase());
+        this.model = Model.valueOf(args.getOrDefault("model", "open").toUpperCase());
+        this.rps = Double.parseDouble(args.getOrDefault("rps", model == Model.OPEN ? "100" : "0"));
+        this.concurrency = Integer.parseInt(args.getOrDefault("concurrency", "16"));
+        this.maxOutstanding = Integer.parseInt(args.getOrDefault("max-outstanding", "10000"));
+        this.duration = parseDuration(args.getOrDefault("duration", "60s"));
+        this.warmup = parseDuration(args.getOrDefault("warmup", "10s"));
+        this.mix = RequestMix.parse(args.getOrDefault("mix", "create:10,get:80,delete:10"));
+        String[] ids = args.getOrDefault("product-ids", "1-1000").split("-");
+        this.firstProductId = Integer.parseInt(ids[0].trim());
+        this.lastProductId = Integer.parseInt(ids[1].trim());
+        this.recommendations = Integer.parseInt(args.getOrDefault("recommendations", "3"));
+        this.reviews = Integer.parseInt(args.getOrDefault("reviews", "3"));
+        this.prepopulate = Boolean.parseBoolean(args.getOrDefault("prepopulate", "false"));
+        this.timeout = parseDuration(args.getOrDefault("timeout", "10s"));
+        this.report = Path.of(args.getOrDefault("report", "load-report.json"));
+        this.hgrmDir = args.containsKey("hgrm-dir") ? Path.of(args.get("hgrm-dir")) : null;
+        this.stub = Boolean.parseBoolean(args.getOrDefault("stub", "false"));
+        this.stubLatency = parseDuration(args.getOrDefault("stub-latency", "0ms"));
+
+        if (model == Model.OPEN && rps <= 0) {
+            throw new IllegalArgumentException("The open model requires --rps > 0");
+        }
+        if (stub && api != Api.COMPOSITE) {
+            throw new IllegalArgumentException("The stub only serves the composite API");
+        }
+        if (firstProductId < 1 || lastProductId < firstProductId) {
+            throw new IllegalArgumentException("Invalid --product-ids: " + args.get("product-ids"));
+        }
+    }
+
+    public static LoadGeneratorSettings parse(String... args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadGeneratorSettings(values);
+    }
+
+    /**
+     * Parses durations like 500ms, 30s, 5m or ISO-8601 (PT30S).
+     */
+    static Duration parseDuration(String value) {
+        String v = value.trim().toLowerCase();
+        if (v.startsWith("pt")) {
+            return Duration.parse(v);
+        } else if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        } else if (v.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        } else if (v.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(v));
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("target", stub ? "stub" : host + ":" + port);
+        map.put("api", api.name().toLowerCase());
+        map.put("model", model.name().toLowerCase());
+        map.put("rps", rps);
+        map.put("concurrency", model == Model.CLOSED ? concurrency : null);
+        map.put("durationSeconds", duration.toMillis() / 1000.0);
+        map.put("warmupSeconds", warmup.toMillis() / 1000.0);
+        map.put("mix", mix.toString());
+        map.put("productIds", firstProductId + "-" + lastProductId);
+        map.put("recommendations", recommendations);
+        map.put("reviews", reviews);
+        map.put("timeoutMs", timeout.toMillis());
+        return map;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public Api getApi() {
+        return api;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public double getRps() {
+        return rps;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public RequestMix getMix() {
+        return mix;
+    }
+
+    public int getFirstProductId() {
+        return firstProductId;
+    }
+
+    public int getLastProductId() {
+        return lastProductId;
+    }
+
+    public int getRecommendations() {
+        return recommendations;
+    }
+
+    public int getReviews() {
+        return reviews;
+    }
+
+    public boolean isPrepopulate() {
+        return prepopulate;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public Path getReport() {
+        return report;
+    }
+
+    public Path getHgrmDir() {
+        return hgrmDir;
+    }
+
+    public boolean isStub() {
+        return stub;
+    }
+
+    public Duration getStubLatency() {
+        return stubLatency;
+    }
+}
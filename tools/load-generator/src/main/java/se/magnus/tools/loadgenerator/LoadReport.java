@@ -0,0 +1,160 @@
+package se.magnus.tools.loadgenerator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.HdrHistogram.Histogram;
+import se.magnus.tools.loadgenerator.RequestMix.Operation;
+
+/*
+ * The result of a load test run, written as a JSON document that can be compared between runs,
+ * optionally together with the full percentile distributions as .hgrm files, which can be plotted
+ * with the HdrHistogram plotter.
+ *
+ * Latencies are reported in milliseconds, both corrected and uncorrected for coordinated omission,
+ * see LatencyRecorder. Operations that weren't sent are left out, "all" combines all operations.
+ * The count of an operation is the number of requests sent, the dropped requests are counted
+ * separately but included in the errors and the corrected latencies.
+ */
+public final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final String ALL = "all";
+
+    private final Map<String, Object> document = new LinkedHashMap<>();
+    private final Map<String, Histogram> correctedHistograms = new LinkedHashMap<>();
+
+    public LoadReport(LoadGeneratorSettings settings, LatencyRecorder recorder, long measuredNanos) {
+        Histogram allCorrected = null;
+        Histogram allUncorrected = null;
+        long allErrors = 0;
+        long allDropped = 0;
+        Map<Integer, Long> allStatusCodes = new TreeMap<>();
+        Map<String, Object> operations = new LinkedHashMap<>();
+
+        for (Operation operation : Operation.values()) {
+            Histogram corrected = recorder.getCorrected(operation);
+            Histogram uncorrected = recorder.getUncorrected(operation);
+            if (corrected.getTotalCount() == 0) {
+                continue;
+            }
+            if (allCorrected == null) {
+                allCorrected = corrected.copy();
+                allUncorrected = uncorrected.copy();
+            } else {
+                allCorrected.add(corrected);
+                allUncorrected.add(uncorrected);
+            }
+            long errors = recorder.getErrors(operation);
+            long dropped = recorder.getDropped(operation);
+            Map<Integer, Long> statusCodes = recorder.getStatusCodes(operation);
+            allErrors += errors;
+            allDropped += dropped;
+            statusCodes.forEach((status, count) -> allStatusCodes.merge(status, count, Long::sum));
+
+            String name = operation.name().toLowerCase();
+            operations.put(name, result(corrected, uncorrected, errors, dropped, statusCodes));
+            correctedHistograms.put(name, corrected);
+        }
+        if (allCorrected != null) {
+            operations.put(ALL, result(allCorrected, allUncorrected, allErrors, allDropped, allStatusCodes));
+            correctedHistograms.put(ALL, allCorrected);
+        }
+
+        long total = allUncorrected == null ? 0 : allUncorrected.getTotalCount();
+        double seconds = measuredNanos / 1e9;
+        document.put("settings", settings.toMap());
+        document.put("measuredSeconds", round(seconds));
+        document.put("requests", total);
+        document.put("achievedRps", seconds > 0 ? round(total / seconds) : 0.0);
+        document.put("dropped", allDropped);
+        document.put("operations", operations);
+    }
+
+    public Map<String, Object> getDocument() {
+        return document;
+    }
+
+    public void write(Path path, ObjectMapper mapper) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        mapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), document);
+    }
+
+    /**
+     * Writes the corrected percentile distribution of each operation to &lt;operation&gt;.hgrm, in milliseconds.
+     */
+    public void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, Histogram> entry : correctedHistograms.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hgrm")))) {
+                entry.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void printSummary(PrintStream out) {
+        out.printf("Requests: %d, achieved rps: %s, dropped: %d%n",
+                document.get("requests"), document.get("achievedRps"), document.get("dropped"));
+        out.printf("%-8s %8s %7s %10s %10s %10s %10s %10s%n",
+                "", "count", "errors", "p50", "p99", "p99.9", "max", "p99 (unc)");
+
+        Map<String, Object> operations = (Map<String, Object>) document.get("operations");
+        operations.forEach((name, value) -> {
+            Map<String, Object> result = (Map<String, Object>) value;
+            Map<String, Object> corrected = (Map<String, Object>) ((Map<String, Object>) result.get("latencyMs")).get("corrected");
+            Map<String, Object> uncorrected = (Map<String, Object>) ((Map<String, Object>) result.get("latencyMs")).get("uncorrected");
+            out.printf("%-8s %8d %7d %10s %10s %10s %10s %10s%n", name, result.get("count"), result.get("errors"),
+                    corrected.get("p50"), corrected.get("p99"), corrected.get("p99.9"), corrected.get("max"),
+                    uncorrected.get("p99"));
+        });
+        if (((Number) document.get("dropped")).longValue() > 0) {
+            out.println("Dropped requests are included in the corrected latencies at the request timeout, "
+                    + "lower --rps or raise --max-outstanding to measure the actual latencies");
+        }
+    }
+
+    private static Map<String, Object> result(Histogram corrected, Histogram uncorrected, long errors, long dropped,
+            Map<Integer, Long> statusCodes) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("corrected", percentiles(corrected));
+        latency.put("uncorrected", percentiles(uncorrected));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", uncorrected.getTotalCount());
+        result.put("errors", errors);
+        result.put("dropped", dropped);
+        result.put("statusCodes", statusCodes);
+        result.put("latencyMs", latency);
+        return result;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            String name = "p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile));
+            percentiles.put(name, toMillis(histogram.getValueAtPercentile(percentile)));
+        }
+        percentiles.put("max", toMillis(histogram.getMaxValue()));
+        percentiles.put("mean", round(histogram.getMean() / MICROS_PER_MILLI));
+        return percentiles;
+    }
+
+    private static double toMillis(long micros) {
+        return round(micros / MICROS_PER_MILLI);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+}
@@ -0,0 +1,60 @@
+package se.magnus.tools.loadgenerator;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/*
+ * Weighted mix of the operations sent to the product composite API, e.g. create:10,get:80,delete:10.
+ * Operations left out of the mix are never sent.
+ */
+public final class RequestMix {
+
+    public enum Operation { CREATE, GET, DELETE }
+
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+
+    private RequestMix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The request mix must have a positive total weight");
+        }
+    }
+
+    public static RequestMix parse(String value) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] nameAndWeight = part.trim().split(":");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight, got: " + part);
+            }
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + nameAndWeight[0]);
+            }
+            weights.put(Operation.valueOf(nameAndWeight[0].trim().toUpperCase()), weight);
+        }
+        return new RequestMix(weights);
+    }
+
+    public Operation next() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    @Override
+    public String toString() {
+        return weights.entrySet().stream()
+                .map(e -> e.getKey().name().toLowerCase() + ":" + e.getValue())
+                .collect(Collectors.joining(","));
+    }
+}
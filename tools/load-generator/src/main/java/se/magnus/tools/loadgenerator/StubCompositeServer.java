@@ -0,0 +1,123 @@
+package se.magnus.tools.loadgenerator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * An in-memory stand-in for the product composite API, to try out the load generator, or measure
+ * its own overhead, without starting the microservices.
+ *
+ * Supports create, get and delete of product aggregates, with an optional fixed latency per request.
+ */
+public final class StubCompositeServer implements AutoCloseable {
+
+    private static final String PATH = "/product-composite";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper mapper;
+    private final Duration latency;
+    private final Map<Integer, byte[]> products = new ConcurrentHashMap<>();
+
+    private StubCompositeServer(int port, Duration latency, ObjectMapper mapper) throws IOException {
+        this.latency = latency;
+        this.mapper = mapper;
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1000);
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Starts a stub on the given port, use 0 for any free port.
+     */
+    public static StubCompositeServer start(int port, Duration latency, ObjectMapper mapper) throws IOException {
+        StubCompositeServer stub = new StubCompositeServer(port, latency, mapper);
+        stub.server.start();
+        return stub;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+
+            if (method.equals("POST") && path.equals(PATH)) {
+                byte[] body = readBody(exchange.getRequestBody());
+                JsonNode product = mapper.readTree(body);
+                products.put(product.path("productId").asInt(), body);
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            Integer productId = parseProductId(path);
+            if (productId == null) {
+                exchange.sendResponseHeaders(404, -1);
+
+            } else if (method.equals("GET")) {
+                byte[] body = products.get(productId);
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+
+            } else if (method.equals("DELETE")) {
+                products.remove(productId);
+                exchange.sendResponseHeaders(200, -1);
+
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Integer parseProductId(String path) {
+        if (!path.startsWith(PATH + "/")) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(path.substring(PATH.length() + 1));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private byte[] readBody(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package se.magnus.tools.loadgenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoadGeneratorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private StubCompositeServer stub;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = StubCompositeServer.start(0, Duration.ZERO, mapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void openModelSendsAtTheRequestedRateAndWritesReport() throws Exception {
+
+        LoadGeneratorSettings settings = LoadGeneratorSettings.parse("--model=open", "--rps=200", "--duration=1s",
+                "--warmup=200ms", "--product-ids=1-20", "--prepopulate=true");
+
+        LoadReport report = generator(settings).run();
+
+        Path reportFile = tempDir.resolve("report.json");
+        report.write(reportFile, mapper);
+        report.writeHistograms(tempDir);
+
+        JsonNode json = mapper.readTree(reportFile.toFile());
+        assertEquals("open", json.at("/settings/model").asText());
+        assertEquals(200, json.get("requests").asLong(), 5);
+        assertEquals(0, json.get("dropped").asLong());
+
+        JsonNode all = json.at("/operations/all");
+        assertEquals(json.get("requests").asLong(), all.get("count").asLong());
+        assertEquals(0, all.get("errors").asLong());
+        assertTrue(all.at("/latencyMs/corrected/p99").asDouble() > 0);
+        assertTrue(all.at("/latencyMs/corrected/max").asDouble() >= all.at("/latencyMs/uncorrected/p50").asDouble());
+        assertTrue(json.at("/operations/get/count").asLong() > 0);
+
+        assertTrue(Files.exists(tempDir.resolve("all.hgrm")));
+    }
+
+    @Test
+    void closedModelWithPacingRecordsAllOperations() throws Exception {
+
+        LoadGeneratorSettings settings = LoadGeneratorSettings.parse("--model=closed", "--concurrency=4",
+                "--rps=100", "--duration=1s", "--warmup=0s", "--mix=create:1,get:1,delete:1", "--product-ids=1-10");
+
+        LoadReport report = generator(settings).run();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> operations = (Map<String, Object>) report.getDocument().get("operations");
+        assertTrue(operations.keySet().containsAll(List.of("create", "get", "delete", "all")));
+        assertEquals(100, ((Number) report.getDocument().get("requests")).longValue(), 5);
+    }
+
+    @Test
+    void correctedLatencyIncludesTheTimeARequestWaitedToBeSent() {
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        long ms = 1_000_000;
+        recorder.record(RequestMix.Operation.GET, 0, 90 * ms, 100 * ms, 200);
+
+        assertEquals(100, recorder.getCorrected(RequestMix.Operation.GET).getMaxValue() / 1000.0, 1);
+        assertEquals(10, recorder.getUncorrected(RequestMix.Operation.GET).getMaxValue() / 1000.0, 1);
+        assertEquals(0, recorder.getErrors(RequestMix.Operation.GET));
+    }
+
+    @Test
+    void droppedRequestsAreRecordedAsTimedOut() {
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        long ms = 1_000_000;
+        recorder.record(RequestMix.Operation.GET, 0, 0, 10 * ms, 200);
+        recorder.recordDropped(RequestMix.Operation.GET, 5000 * ms);
+
+        assertEquals(5000, recorder.getCorrected(RequestMix.Operation.GET).getMaxValue() / 1000.0, 5);
+        assertEquals(1, recorder.getUncorrected(RequestMix.Operation.GET).getTotalCount());
+        assertEquals(1, recorder.getDropped(RequestMix.Operation.GET));
+        assertEquals(1, recorder.getErrors(RequestMix.Operation.GET));
+
+        LoadReport report = new LoadReport(LoadGeneratorSettings.parse(), recorder, 1_000 * ms);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> all = (Map<String, Object>) ((Map<String, Object>) report.getDocument().get("operations"))
+                .get("all");
+        assertEquals(1L, report.getDocument().get("requests"));
+        assertEquals(1L, report.getDocument().get("dropped"));
+        assertEquals(1L, all.get("count"));
+        assertEquals(1L, all.get("dropped"));
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorSettings.parse("--rps"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorSettings.parse("--model=open", "--rps=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorSettings.parse("--mix=get:0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGeneratorSettings.parse("--api=review", "--stub=true"));
+    }
+
+    private LoadGenerator generator(LoadGeneratorSettings settings) {
+        return new LoadGenerator(settings, URI.create("http://localhost:" + stub.getPort()), mapper);
+    }
+}
@@ -0,0 +1,79 @@
+package se.magnus.util.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.netty.NettyServerBuilder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves the gRPC services of a core service, i.e. its BindableService beans, on app.grpc.port
+ * next to the REST API. Not created if app.grpc.port isn't set, e.g. in the composite service.
+ */
+@Component
+@ConditionalOnProperty("app.grpc.port")
+public class GrpcServer implements SmartLifecycle {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GrpcServer.class);
+
+  private final List<BindableService> services;
+  private final int port;
+  private volatile Server server;
+
+  public GrpcServer(List<BindableService> services, @Value("${app.grpc.port}") int port) {
+    this.services = services;
+    this.port = port;
+  }
+
+  @Override
+  public void start() {
+    // The services never block the calling thread, blocking JDBC calls run on the jdbcScheduler,
+    // so calls are handled on the Netty event loop without a hand-off to another executor
+    NettyServerBuilder builder = NettyServerBuilder.forPort(port).directExecutor();
+    services.forEach(builder::addService);
+    try {
+      server = builder.build().start();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException("Failed to start the gRPC server on port " + port, ioe);
+    }
+    LOG.info("gRPC server started on port {} with {} services", server.getPort(), services.size());
+  }
+
+  @Override
+  public void stop() {
+    Server s = server;
+    server = null;
+    if (s == null) {
+      return;
+    }
+    s.shutdown();
+    try {
+      if (!s.awaitTermination(10, TimeUnit.SECONDS)) {
+        s.shutdownNow();
+      }
+    } catch (InterruptedException ie) {
+      s.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return server != null;
+  }
+
+  /**
+   * Returns the port the server listens on, also when app.grpc.port is 0.
+   */
+  public int getPort() {
+    return server.getPort();
+  }
+}
@@ -0,0 +1,77 @@
+package se.magnus.util.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+import java.util.concurrent.RejectedExecutionException;
+import se.magnus.api.exceptions.BadRequestException;
+import se.magnus.api.exceptions.DeadlineExceededException;
+import se.magnus.api.exceptions.InvalidInputException;
+import se.magnus.api.exceptions.NotFoundException;
+import se.magnus.api.exceptions.ServiceUnavailableException;
+
+/**
+ * Maps the exceptions of the API to gRPC status codes and back, the gRPC counterpart of
+ * GlobalControllerExceptionHandler on the server side and of the mapping of HTTP status codes
+ * done by the REST clients.
+ */
+public final class GrpcStatus {
+
+  private GrpcStatus() {
+  }
+
+  /**
+   * Returns the status a gRPC service responds with when a call fails with the exception.
+   */
+  public static StatusRuntimeException toStatus(Throwable ex) {
+    if (ex instanceof StatusRuntimeException sre) {
+      return sre;
+    }
+    if (ex instanceof StatusException se) {
+      return se.getStatus().asRuntimeException(se.getTrailers());
+    }
+    return statusOf(ex).withDescription(ex.getMessage()).asRuntimeException();
+  }
+
+  /**
+   * Returns the exception of the API that corresponds to the status a gRPC call failed with, or
+   * the error itself if there is none.
+   */
+  public static Throwable fromStatus(Throwable ex) {
+    Status status = Status.fromThrowable(ex);
+    String message = status.getDescription();
+
+    switch (status.getCode()) {
+      case NOT_FOUND:
+        return new NotFoundException(message);
+
+      case INVALID_ARGUMENT:
+        return new InvalidInputException(message);
+
+      case DEADLINE_EXCEEDED:
+        return new DeadlineExceededException(message);
+
+      case UNAVAILABLE:
+        return new ServiceUnavailableException(message, ex);
+
+      default:
+        return ex;
+    }
+  }
+
+  private static Status statusOf(Throwable ex) {
+    if (ex instanceof NotFoundException) {
+      return Status.NOT_FOUND;
+    }
+    if (ex instanceof InvalidInputException || ex instanceof BadRequestException) {
+      return Status.INVALID_ARGUMENT;
+    }
+    if (ex instanceof DeadlineExceededException) {
+      return Status.DEADLINE_EXCEEDED;
+    }
+    if (ex instanceof ServiceUnavailableException || ex instanceof RejectedExecutionException) {
+      return Status.UNAVAILABLE;
+    }
+    return Status.INTERNAL;
+  }
+}
@@ -0,0 +1,179 @@
+package se.magnus.util.grpc;
+
+import io.grpc.Deadline;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.context.ContextView;
+import se.magnus.api.exceptions.NotFoundException;
+import se.magnus.util.http.RequestDeadline;
+
+/**
+ * Adapters between Reactor and the StreamObserver based gRPC stubs.
+ *
+ * On the client side, the deadline of the request in the Reactor context, see RequestDeadline,
+ * is set as the deadline of the gRPC call, and cancelling the subscription cancels the call. The
+ * messages of a server-streaming call are requested from the server as the subscriber requests
+ * them.
+ *
+ * On the server side, the deadline of the gRPC call is put into the Reactor context, and the
+ * subscription is cancelled if the client cancels the call. Errors are mapped by GrpcStatus.
+ */
+public final class ReactiveGrpc {
+
+  private ReactiveGrpc() {
+  }
+
+  /**
+   * A method of an async stub, e.g. ReviewGrpcServiceStub::getReviews.
+   */
+  @FunctionalInterface
+  public interface Call<S, Q, T> {
+    void invoke(S stub, Q request, StreamObserver<T> responseObserver);
+  }
+
+  /**
+   * Makes a unary call when the Mono is subscribed to.
+   */
+  public static <S extends AbstractStub<S>, Q, T> Mono<T> unary(S stub, Call<S, Q, T> call, Q request) {
+    return Mono.deferContextual(ctx -> {
+      RequestDeadline.check(ctx);
+      S withDeadline = withDeadline(stub, ctx);
+      return Mono.<T>create(sink -> call.invoke(withDeadline, request, new MonoObserver<Q, T>(sink)));
+    }).onErrorMap(GrpcStatus::fromStatus);
+  }
+
+  /**
+   * Makes a server-streaming call when the Flux is subscribed to.
+   */
+  public static <S extends AbstractStub<S>, Q, T> Flux<T> serverStreaming(S stub, Call<S, Q, T> call,
+      Q request) {
+
+    return Flux.deferContextual(ctx -> {
+      RequestDeadline.check(ctx);
+      S withDeadline = withDeadline(stub, ctx);
+      return Flux.<T>create(sink -> {
+        FluxObserver<Q, T> observer = new FluxObserver<>(sink);
+        call.invoke(withDeadline, request, observer);
+        // The call has started when the stub returns, it can only be asked for messages after that
+        sink.onRequest(observer::request);
+      });
+    }).onErrorMap(GrpcStatus::fromStatus);
+  }
+
+  /**
+   * Responds to a unary call with the value of the Mono, an empty Mono is responded to with
+   * NOT_FOUND.
+   */
+  public static <T> void respond(Mono<T> mono, StreamObserver<T> observer) {
+    subscribe(mono.switchIfEmpty(Mono.error(() -> new NotFoundException("No value found"))).flux(), observer);
+  }
+
+  /**
+   * Responds to a server-streaming call with the elements of the Flux.
+   *
+   * The elements are written as they are produced, without waiting for the client to ask for
+   * them. The services only stream lists they already have loaded into memory.
+   */
+  public static <T> void respond(Flux<T> flux, StreamObserver<T> observer) {
+    subscribe(flux, observer);
+  }
+
+  private static <T> void subscribe(Flux<T> flux, StreamObserver<T> observer) {
+    Deadline deadline = io.grpc.Context.current().getDeadline();
+
+    Disposable.Swap subscription = Disposables.swap();
+    if (observer instanceof ServerCallStreamObserver<T> serverObserver) {
+      serverObserver.setOnCancelHandler(subscription::dispose);
+    }
+
+    subscription.update(flux
+      .contextWrite(ctx -> deadline == null ? ctx
+        : RequestDeadline.withBudget(ctx, Duration.ofNanos(deadline.timeRemaining(TimeUnit.NANOSECONDS))))
+      .subscribe(
+        observer::onNext,
+        error -> observer.onError(GrpcStatus.toStatus(error)),
+        observer::onCompleted));
+  }
+
+  private static <S extends AbstractStub<S>> S withDeadline(S stub, ContextView ctx) {
+    return RequestDeadline.remaining(ctx)
+      .map(remaining -> stub.withDeadlineAfter(remaining.toNanos(), TimeUnit.NANOSECONDS))
+      .orElse(stub);
+  }
+
+  private static class MonoObserver<Q, T> implements ClientResponseObserver<Q, T> {
+
+    private final MonoSink<T> sink;
+
+    MonoObserver(MonoSink<T> sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Q> requestStream) {
+      sink.onCancel(() -> requestStream.cancel("Cancelled by the subscriber", null));
+    }
+
+    @Override
+    public void onNext(T value) {
+      sink.success(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      sink.error(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      sink.success();
+    }
+  }
+
+  private static class FluxObserver<Q, T> implements ClientResponseObserver<Q, T> {
+
+    private final FluxSink<T> sink;
+    private ClientCallStreamObserver<Q> requestStream;
+
+    FluxObserver(FluxSink<T> sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<Q> requestStream) {
+      this.requestStream = requestStream;
+      requestStream.disableAutoRequestWithInitial(0);
+      sink.onCancel(() -> requestStream.cancel("Cancelled by the subscriber", null));
+    }
+
+    void request(long n) {
+      requestStream.request((int) Math.min(n, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void onNext(T value) {
+      sink.next(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      sink.error(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      sink.complete();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package se.magnus.util.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Registers Jackson CBOR codecs for both the WebFlux server and WebClients, in addition to the
+ * JSON and Smile codecs that Spring registers by default. Responses are only encoded as CBOR or
+ * Smile if the request asks for it in the Accept header, JSON remains the default.
+ *
+ * A Flux is encoded as, and decoded from, an array, like a non-streaming Flux is in JSON. The
+ * Smile encoder Spring registers by default writes the array with JSON brackets and commas, and
+ * Spring's CBOR codecs only handle single values, so both are replaced.
+ */
+@Component
+public class BinaryCodecCustomizer implements CodecCustomizer {
+
+  public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+  @Override
+  public void customize(CodecConfigurer configurer) {
+    configurer.defaultCodecs().jackson2SmileEncoder(new SmileEncoder(Jackson2ObjectMapperBuilder.smile().build()));
+
+    ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    configurer.customCodecs().register(new CborEncoder(cborMapper));
+    configurer.customCodecs().register(new CborDecoder(cborMapper));
+  }
+
+  private static Flux<DataBuffer> encodeAsArray(AbstractJackson2Encoder encoder, Publisher<?> inputStream,
+      DataBufferFactory bufferFactory, ResolvableType elementType, @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+
+    if (inputStream instanceof Mono) {
+      return Mono.from(inputStream)
+        .map(value -> encoder.encodeValue(value, bufferFactory, elementType, mimeType, hints))
+        .flux();
+    }
+    ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+    return Flux.from(inputStream)
+      .collectList()
+      .map(list -> encoder.encodeValue(list, bufferFactory, listType, mimeType, hints))
+      .flux();
+  }
+
+  private static class SmileEncoder extends Jackson2SmileEncoder {
+
+    SmileEncoder(ObjectMapper mapper) {
+      super(mapper, APPLICATION_SMILE);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+        ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+      return encodeAsArray(this, inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+  }
+
+  private static class CborEncoder extends Jackson2CborEncoder {
+
+    CborEncoder(ObjectMapper mapper) {
+      super(mapper, MediaType.APPLICATION_CBOR);
+    }
+
+    // Custom codecs come before the default JSON codecs, so a body without a content type, e.g.
+    // the body of a POST, would otherwise be encoded as CBOR
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+      return mimeType != null && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+        ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+      return encodeAsArray(this, inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+  }
+
+  private static class CborDecoder extends Jackson2CborDecoder {
+
+    CborDecoder(ObjectMapper mapper) {
+      super(mapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType,
+        @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+
+      ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+      return decodeToMono(input, listType, mimeType, hints)
+        .flatMapIterable(list -> (List<?>) list);
+    }
+  }
+}
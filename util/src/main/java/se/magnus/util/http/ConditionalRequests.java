@@ -0,0 +1,77 @@
+package se.magnus.util.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import reactor.core.publisher.Mono;
+
+/**
+ * Support for conditional GET requests, i.e. ETag and If-None-Match.
+ *
+ * An ETag is built from whatever identifies the state of a response, e.g. the ids and @Version
+ * fields of the entities it is made of, before the response is created:
+ *
+ *   String etag = ConditionalRequests.etag().add(entity.getId()).add(entity.getVersion()).build();
+ *   return ConditionalRequests.ifNoneMatch(etag, () -> mapper.entityToApi(entity));
+ *
+ * If the request has a matching If-None-Match header, the response is set to 304 Not Modified
+ * and the body is never created, otherwise the ETag header is added to the response.
+ *
+ * ETags are weak, since the same state can be rendered slightly differently, e.g. with the
+ * serviceAddress of another instance.
+ */
+public final class ConditionalRequests {
+
+  private ConditionalRequests() {
+  }
+
+  public static Builder etag() {
+    return new Builder();
+  }
+
+  /**
+   * Emits the body, or completes empty if the request has an If-None-Match header matching the
+   * ETag. The body is also emitted if the call isn't made within a web request.
+   */
+  public static <T> Mono<T> ifNoneMatch(String etag, Supplier<T> body) {
+    return Mono.deferContextual(ctx -> ServerWebExchangeContextFilter.getExchange(ctx)
+      .filter(exchange -> exchange.checkNotModified(etag))
+      .map(exchange -> Mono.<T>empty())
+      .orElseGet(() -> Mono.fromSupplier(body)));
+  }
+
+  /**
+   * Builds a weak ETag from a 64-bit FNV-1a hash of the added parts.
+   */
+  public static final class Builder {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final byte SEPARATOR = 0x1f;
+
+    private long hash = FNV_OFFSET_BASIS;
+
+    private Builder() {
+    }
+
+    public Builder add(Object part) {
+      for (byte b : String.valueOf(part).getBytes(StandardCharsets.UTF_8)) {
+        hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+      }
+      hash = (hash ^ SEPARATOR) * FNV_PRIME;
+      return this;
+    }
+
+    public Builder add(long part) {
+      for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+        hash = (hash ^ ((part >>> shift) & 0xff)) * FNV_PRIME;
+      }
+      hash = (hash ^ SEPARATOR) * FNV_PRIME;
+      return this;
+    }
+
+    public String build() {
+      return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package se.magnus.util.http;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Makes the exchange of the current request available in the Reactor context, so that code
+ * called from the controllers can read request headers and set response headers, see
+ * ConditionalRequests.
+ *
+ * A Flux response is encoded as a JSON array even if it is empty, so the body written after
+ * ConditionalRequests has set the status to 304 Not Modified is dropped here.
+ */
+@Component
+public class ExchangeContextWebFilter extends ServerWebExchangeContextFilter {
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    return super.filter(exchange.mutate().response(new NotModifiedResponse(exchange.getResponse())).build(), chain);
+  }
+
+  private static class NotModifiedResponse extends ServerHttpResponseDecorator {
+
+    NotModifiedResponse(ServerHttpResponse delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+      return super.writeWith(Flux.from(body).filter(buffer -> {
+        if (HttpStatus.NOT_MODIFIED.equals(getStatusCode())) {
+          DataBufferUtils.release(buffer);
+          return false;
+        }
+        return true;
+      }));
+    }
+  }
+}
@@ -1,12 +1,19 @@
 package se.magnus.util.http;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.GATEWAY_TIMEOUT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -14,8 +21,10 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import se.magnus.api.exceptions.BadRequestException;
+import se.magnus.api.exceptions.DeadlineExceededException;
 import se.magnus.api.exceptions.InvalidInputException;
 import se.magnus.api.exceptions.NotFoundException;
+import se.magnus.api.exceptions.ServiceUnavailableException;
 
 /*
  * I have created a set of Java exceptions in the util project that are used by both the API implementations and the API clients, initially InvalidInputException and NotFoundException. Look into the
@@ -34,6 +43,12 @@ class GlobalControllerExceptionHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(GlobalControllerExceptionHandler.class);
 
+  private final long retryAfterSeconds;
+
+  GlobalControllerExceptionHandler(@Value("${app.retry-after:1s}") Duration retryAfter) {
+    this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+  }
+
   /*
    * To allow springdoc-openapi to also correctly document 400 (BAD_REQUEST)
    * errors that
@@ -65,6 +80,28 @@ class GlobalControllerExceptionHandler {
     return createHttpErrorInfo(UNPROCESSABLE_ENTITY, request, ex);
   }
 
+  @ResponseStatus(GATEWAY_TIMEOUT)
+  @ExceptionHandler(DeadlineExceededException.class)
+  public @ResponseBody HttpErrorInfo handleDeadlineExceededException(
+      ServerHttpRequest request, DeadlineExceededException ex) {
+
+    return createHttpErrorInfo(GATEWAY_TIMEOUT, request, ex);
+  }
+
+  /*
+   * A concurrency limit or a full queue, e.g. of the jdbcScheduler of the review service, rejects
+   * the call at once. The Retry-After header tells the caller to back off instead of retrying
+   * right away.
+   */
+  @ExceptionHandler({ServiceUnavailableException.class, RejectedExecutionException.class})
+  public ResponseEntity<HttpErrorInfo> handleServiceUnavailableException(
+      ServerHttpRequest request, Exception ex) {
+
+    return ResponseEntity.status(SERVICE_UNAVAILABLE)
+      .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+      .body(createHttpErrorInfo(SERVICE_UNAVAILABLE, request, ex));
+  }
+
   private HttpErrorInfo createHttpErrorInfo(
       HttpStatus httpStatus, ServerHttpRequest request, Exception ex) {
 
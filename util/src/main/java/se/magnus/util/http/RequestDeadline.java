@@ -0,0 +1,119 @@
+package se.magnus.util.http;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import se.magnus.api.exceptions.DeadlineExceededException;
+
+/**
+ * Helpers for the deadline of a request, kept in the Reactor context of the request.
+ *
+ * The deadline travels between services as the number of milliseconds left in the
+ * X-Request-Deadline-Ms header. A relative value is used so that clock skew between the hosts
+ * doesn't matter. RequestDeadlineWebFilter puts the deadline of an incoming request into the
+ * context, and work started after the deadline has passed is skipped or aborted with a
+ * DeadlineExceededException.
+ */
+public final class RequestDeadline {
+
+  public static final String HEADER = "X-Request-Deadline-Ms";
+
+  private static final String CONTEXT_KEY = RequestDeadline.class.getName();
+
+  private RequestDeadline() {
+  }
+
+  /**
+   * Returns the deadline in System.nanoTime() units, if the request has one.
+   */
+  public static Optional<Long> get(ContextView ctx) {
+    return ctx.getOrEmpty(CONTEXT_KEY);
+  }
+
+  public static Optional<Duration> remaining(ContextView ctx) {
+    return get(ctx).map(deadline -> Duration.ofNanos(deadline - System.nanoTime()));
+  }
+
+  /**
+   * Sets a deadline budget from now, unless the context already holds an earlier deadline.
+   */
+  public static Context withBudget(Context ctx, Duration budget) {
+    long deadline = System.nanoTime() + budget.toNanos();
+    Optional<Long> existing = get(ctx);
+    if (existing.isPresent() && existing.get() - deadline < 0) {
+      return ctx;
+    }
+    return ctx.put(CONTEXT_KEY, deadline);
+  }
+
+  /**
+   * Throws a DeadlineExceededException if the deadline of the request has passed.
+   */
+  public static void check(ContextView ctx) {
+    remaining(ctx).ifPresent(remaining -> {
+      if (remaining.isNegative() || remaining.isZero()) {
+        throw new DeadlineExceededException("Request deadline exceeded by " + remaining.negated().toMillis() + " ms");
+      }
+    });
+  }
+
+  /**
+   * Cancels the Mono if it doesn't complete before the deadline of the request.
+   */
+  public static <T> Mono<T> enforce(Mono<T> mono) {
+    return Mono.deferContextual(ctx -> {
+      check(ctx);
+      return remaining(ctx)
+          .map(remaining -> mono.timeout(remaining, Mono.error(() -> exceeded(remaining))))
+          .orElse(mono);
+    });
+  }
+
+  /**
+   * Cancels the Flux if it doesn't complete before the deadline of the request.
+   */
+  public static <T> Flux<T> enforce(Flux<T> flux) {
+    return Flux.deferContextual(ctx -> {
+      check(ctx);
+      return remaining(ctx)
+          .map(remaining -> {
+            AtomicBoolean timedOut = new AtomicBoolean(false);
+            Mono<Long> timer = Mono.delay(remaining).doOnNext(tick -> timedOut.set(true));
+            return flux.takeUntilOther(timer)
+                .concatWith(Mono.defer(() -> timedOut.get() ? Mono.error(exceeded(remaining)) : Mono.empty()));
+          })
+          .orElse(flux);
+    });
+  }
+
+  /**
+   * Like Mono.fromCallable(), but skips the call if the deadline has passed when it is about to
+   * start, e.g. after waiting in the queue of a scheduler.
+   */
+  public static <T> Mono<T> fromCallable(Callable<T> callable) {
+    return Mono.deferContextual(ctx -> Mono.fromCallable(() -> {
+      check(ctx);
+      return callable.call();
+    }));
+  }
+
+  /**
+   * Like Mono.fromRunnable(), but skips the call if the deadline has passed when it is about to
+   * start.
+   */
+  public static Mono<Void> fromRunnable(Runnable runnable) {
+    return Mono.deferContextual(ctx -> Mono.fromRunnable(() -> {
+      check(ctx);
+      runnable.run();
+    }));
+  }
+
+  private static DeadlineExceededException exceeded(Duration budget) {
+    return new DeadlineExceededException("Request deadline of " + budget.toMillis() + " ms exceeded");
+  }
+}
@@ -0,0 +1,38 @@
+package se.magnus.util.http;
+
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts the deadline sent by the caller in the X-Request-Deadline-Ms header into the Reactor
+ * context of the request, see RequestDeadline.
+ */
+@Component
+public class RequestDeadlineWebFilter implements WebFilter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RequestDeadlineWebFilter.class);
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+
+    String header = exchange.getRequest().getHeaders().getFirst(RequestDeadline.HEADER);
+    if (header == null) {
+      return chain.filter(exchange);
+    }
+
+    try {
+      Duration budget = Duration.ofMillis(Long.parseLong(header.trim()));
+      return chain.filter(exchange).contextWrite(ctx -> RequestDeadline.withBudget(ctx, budget));
+
+    } catch (NumberFormatException nfe) {
+      LOG.debug("Ignores invalid {} header: {}", RequestDeadline.HEADER, header);
+      return chain.filter(exchange);
+    }
+  }
+}
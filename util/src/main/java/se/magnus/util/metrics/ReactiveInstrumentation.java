@@ -0,0 +1,111 @@
+package se.magnus.util.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Records latency, outcome and number of elements of reactive operations, i.e. calls to other
+ * services and repository operations, as Micrometer meters.
+ *
+ * Use it with transform(), e.g.
+ * repository.findByProductId(id).transform(instrumentation.flux("product-repository", "findByProductId")).
+ *
+ * Two meters are registered, both tagged with service and operation:
+ * <ul>
+ *   <li>app.operations, a timer with a percentile histogram, also tagged with outcome
+ *       (success, error or cancelled) and exception. Its count per outcome gives the error count.</li>
+ *   <li>app.operations.elements, a distribution summary of the number of elements emitted.</li>
+ * </ul>
+ * Nothing is done per element except incrementing a local counter, the meters are updated once
+ * when the operation terminates.
+ */
+@Component
+public class ReactiveInstrumentation {
+
+  public static final String TIMER_NAME = "app.operations";
+  public static final String ELEMENTS_NAME = "app.operations.elements";
+
+  private static final String NONE = "none";
+
+  private final MeterProvider<Timer> timers;
+  private final MeterProvider<DistributionSummary> elementSummaries;
+
+  public ReactiveInstrumentation(MeterRegistry registry) {
+    this.timers = Timer.builder(TIMER_NAME)
+      .description("Latency of calls to other services and repository operations")
+      .publishPercentileHistogram()
+      .minimumExpectedValue(Duration.ofMillis(1))
+      .maximumExpectedValue(Duration.ofSeconds(10))
+      .withRegistry(registry);
+    this.elementSummaries = DistributionSummary.builder(ELEMENTS_NAME)
+      .description("Number of elements returned by calls to other services and repository operations")
+      .withRegistry(registry);
+  }
+
+  public <T> Function<Mono<T>, Mono<T>> mono(String service, String operation) {
+    Tags tags = Tags.of("service", service, "operation", operation);
+
+    return mono -> Mono.defer(() -> {
+      Recording recording = new Recording(tags);
+      return mono
+        .doOnNext(recording::onNext)
+        .doOnError(recording::onError)
+        .doFinally(recording::onFinally);
+    });
+  }
+
+  public <T> Function<Flux<T>, Flux<T>> flux(String service, String operation) {
+    Tags tags = Tags.of("service", service, "operation", operation);
+
+    return flux -> Flux.defer(() -> {
+      Recording recording = new Recording(tags);
+      return flux
+        .doOnNext(recording::onNext)
+        .doOnError(recording::onError)
+        .doFinally(recording::onFinally);
+    });
+  }
+
+  /*
+   * State of one subscription. Reactive Streams signals are serialized, so no synchronization is needed.
+   */
+  private final class Recording {
+
+    private final Tags tags;
+    private final long start = System.nanoTime();
+    private long elements = 0;
+    private Throwable error = null;
+
+    Recording(Tags tags) {
+      this.tags = tags;
+    }
+
+    void onNext(Object element) {
+      elements++;
+    }
+
+    void onError(Throwable ex) {
+      error = ex;
+    }
+
+    void onFinally(SignalType signal) {
+      String outcome = signal == SignalType.ON_ERROR ? "error"
+        : signal == SignalType.CANCEL ? "cancelled" : "success";
+      String exception = error == null ? NONE : error.getClass().getSimpleName();
+
+      timers.withTags(tags.and("outcome", outcome, "exception", exception))
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      elementSummaries.withTags(tags).record(elements);
+    }
+  }
+}